@@ -0,0 +1,122 @@
+package com.example.Employee_manager.config;
+
+import com.example.Employee_manager.dto.EmployeeDTO;
+import com.example.Employee_manager.service.UserService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Named cache regions, each a Caffeine cache with its own size and TTL policy from
+// application.properties. Every region records statistics, which actuator exports as
+// cache.gets, cache.evictions and cache.load.duration per region. Entries are evicted by
+// CacheEvictionService, by key or by the tags of TaggedCaffeineCache; the expireAfterWrite TTLs
+// bound how long a value loaded concurrently with a change can outlive it.
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // Employee DTOs by id
+    public static final String EMPLOYEES = "employees";
+    // Department DTOs by id, and the full list under ALL
+    public static final String DEPARTMENTS = "departments";
+    // Distinct employee roles under ALL
+    public static final String ROLES = "roles";
+    // Current-user profiles by username
+    public static final String USER_PROFILES = "userProfiles";
+    // Org structures by employee data version
+    public static final String HIERARCHY = "hierarchy";
+
+    public static final String ALL = "all";
+
+    // Tags of entries that show an employee, department or user account, see TaggedCaffeineCache
+    public static String employeeTag(Long id) {
+        return "employee:" + id;
+    }
+
+    public static String departmentTag(Long id) {
+        return "department:" + id;
+    }
+
+    public static String userTag(Long id) {
+        return "user:" + id;
+    }
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.employees.spec:maximumSize=10000,expireAfterWrite=10m}") String employeesSpec,
+            @Value("${app.cache.departments.spec:maximumSize=500,expireAfterWrite=10m}") String departmentsSpec,
+            @Value("${app.cache.roles.spec:maximumSize=10,expireAfterWrite=30m}") String rolesSpec,
+            @Value("${app.cache.user-profiles.spec:maximumSize=5000,expireAfterWrite=5m}") String userProfilesSpec,
+            @Value("${app.cache.hierarchy.spec:maximumSize=2}") String hierarchySpec) {
+        // Regions with a tagger index their entries for eviction by tag
+        Map<String, Function<Object, Collection<String>>> taggers = Map.of(
+                EMPLOYEES, CacheConfig::employeeTags,
+                USER_PROFILES, CacheConfig::profileTags);
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                Function<Object, Collection<String>> tagger = taggers.get(name);
+                return tagger != null
+                        ? new TaggedCaffeineCache(name, cache, isAllowNullValues(), tagger)
+                        : super.adaptCaffeineCache(name, cache);
+            }
+        };
+        // Only the regions below exist; a misspelt cache name fails instead of creating an unbounded cache
+        cacheManager.setCacheNames(List.of());
+        cacheManager.setAllowNullValues(false);
+        register(cacheManager, EMPLOYEES, employeesSpec);
+        register(cacheManager, DEPARTMENTS, departmentsSpec);
+        register(cacheManager, ROLES, rolesSpec);
+        register(cacheManager, USER_PROFILES, userProfilesSpec);
+        register(cacheManager, HIERARCHY, hierarchySpec);
+        return cacheManager;
+    }
+
+    // An employee DTO shows the employee, their manager's name and their department's name
+    private static Collection<String> employeeTags(Object value) {
+        List<String> tags = new ArrayList<>(3);
+        if (value instanceof EmployeeDTO employee) {
+            tags.add(employeeTag(employee.getId()));
+            if (employee.getManagerId() != null) {
+                tags.add(employeeTag(employee.getManagerId()));
+            }
+            if (employee.getDepartmentId() != null) {
+                tags.add(departmentTag(employee.getDepartmentId()));
+            }
+        }
+        return tags;
+    }
+
+    // A profile shows the account, its employee record, their manager and their department
+    private static Collection<String> profileTags(Object value) {
+        List<String> tags = new ArrayList<>(4);
+        if (value instanceof UserService.CachedProfile profile) {
+            tags.add(userTag(profile.userId()));
+            if (profile.employeeId() != null) {
+                tags.add(employeeTag(profile.employeeId()));
+            }
+            if (profile.managerId() != null) {
+                tags.add(employeeTag(profile.managerId()));
+            }
+            if (profile.departmentId() != null) {
+                tags.add(departmentTag(profile.departmentId()));
+            }
+        }
+        return tags;
+    }
+
+    private static void register(CaffeineCacheManager cacheManager, String name, String spec) {
+        cacheManager.registerCustomCache(name, Caffeine.from(spec).recordStats().build());
+    }
+}
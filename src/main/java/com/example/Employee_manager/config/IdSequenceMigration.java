@@ -0,0 +1,62 @@
+package com.example.Employee_manager.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Entities that moved from IDENTITY to pooled-lo SEQUENCE ids keep their existing rows, but the
+// sequence Hibernate creates for them starts at 1. Before anything is inserted, move each
+// sequence past the highest id already in its table so new ids cannot collide.
+@Component
+public class IdSequenceMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceMigration.class);
+
+    // Table, its id sequence, and the allocation size of the entity's @SequenceGenerator
+    private record SequencedTable(String table, String sequence, int allocationSize) {}
+
+    private static final List<SequencedTable> TABLES = List.of(
+            new SequencedTable("employees", "employees_seq", 50),
+            new SequencedTable("departments", "departments_seq", 50),
+            new SequencedTable("users", "users_seq", 50),
+            new SequencedTable("sync_tombstones", "sync_tombstones_seq", 50),
+            new SequencedTable("upload_jobs", "upload_jobs_seq", 50));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Schema update runs while the entity manager factory starts, so the sequences exist by now
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    void alignSequences() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(database)) {
+            // Other databases here are only used as fresh, empty schemas
+            return;
+        }
+
+        for (SequencedTable sequenced : TABLES) {
+            Long maxId = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(id), 0) FROM " + sequenced.table(), Long.class);
+            Long lastValue = jdbcTemplate.queryForObject(
+                    "SELECT last_value FROM " + sequenced.sequence(), Long.class);
+            // The pooled-lo optimizer hands out [value, value + allocationSize) from the next value, which
+            // is already past maxId here; a full block ahead also covers the plain pooled optimizer
+            long required = maxId + sequenced.allocationSize();
+            if (lastValue == null || lastValue < required) {
+                jdbcTemplate.queryForObject("SELECT setval(CAST(? AS regclass), ?)", Long.class, sequenced.sequence(), required);
+                log.info("Moved sequence {} to {} past existing ids in {}", sequenced.sequence(), required, sequenced.table());
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.Employee_manager.config;
+
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// A Caffeine cache region that also indexes its keys by tags computed from the cached values,
+// such as "employee:7" for every entry that shows employee 7. A change then evicts exactly the
+// entries carrying its tag, by key, without scanning the region. Keys are indexed before the value
+// is stored, so an eviction never misses a stored entry. The index is only trimmed by evictTagged;
+// a tag left behind by an entry that expired or changed costs one needless eviction later, and the
+// index stays bounded by the number of distinct keys and tags.
+public class TaggedCaffeineCache extends CaffeineCache {
+
+    private final Function<Object, Collection<String>> tagger;
+
+    private final Map<String, Set<Object>> keysByTag = new ConcurrentHashMap<>();
+
+    public TaggedCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                               boolean allowNullValues, Function<Object, Collection<String>> tagger) {
+        super(name, cache, allowNullValues);
+        this.tagger = tagger;
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return super.get(key, () -> {
+            T value = valueLoader.call();
+            index(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        index(key, value);
+        super.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        index(key, value);
+        return super.putIfAbsent(key, value);
+    }
+
+    // Evict every entry whose value carried the tag when it was stored
+    public void evictTagged(String tag) {
+        Set<Object> keys = keysByTag.remove(tag);
+        if (keys != null) {
+            for (Object key : keys) {
+                evict(key);
+            }
+        }
+    }
+
+    private void index(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        for (String tag : tagger.apply(value)) {
+            keysByTag.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+}
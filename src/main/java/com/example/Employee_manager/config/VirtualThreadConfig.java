@@ -0,0 +1,34 @@
+package com.example.Employee_manager.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// Opt-in virtual-thread mode (requires Java 21, build with -Pjava21).
+// With spring.threads.virtual.enabled=true Spring Boot already runs Tomcat requests, the
+// applicationTaskExecutor behind @Async and the @Scheduled task scheduler on virtual threads.
+// What it does not do is bound how many of those threads queue up on the connection pool, so
+// the DataSource is wrapped here to admit at most pool-size borrowers at a time.
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(
+            @Value("${app.datasource.max-concurrent-connections:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrentConnections,
+            @Value("${spring.datasource.hikari.connection-timeout:30000}") long acquireTimeoutMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionLimitingDataSource)) {
+                    return new ConnectionLimitingDataSource(dataSource, maxConcurrentConnections, acquireTimeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+}
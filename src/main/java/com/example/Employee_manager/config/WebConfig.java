@@ -1,27 +0,0 @@
-package com.example.Employee_manager.config;
-
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
-
-import java.nio.file.Path;
-import java.nio.file.Paths;
-
-@Configuration
-public class WebConfig implements WebMvcConfigurer {
-
-    @Value("${app.upload.dir:uploads/profile-pictures}")
-    private String uploadDir;
-
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        Path uploadPath = Paths.get(uploadDir);
-        String uploadPathStr = uploadPath.toFile().getAbsolutePath();
-
-        registry.addResourceHandler("/uploads/profile-pictures/**")
-                .addResourceLocations("file:" + uploadPathStr + "/");
-    }
-}
-
-
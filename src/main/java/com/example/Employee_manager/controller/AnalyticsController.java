@@ -0,0 +1,57 @@
+package com.example.Employee_manager.controller;
+
+import com.example.Employee_manager.service.RollupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics")
+@Tag(name = "Analytics", description = "APIs for headcount and payroll rollups over the reporting structure")
+public class AnalyticsController {
+
+    @Autowired
+    private RollupService rollupService;
+
+    @GetMapping("/span-of-control")
+    @Operation(summary = "Get spans of control", description = "Get managers ordered by the size of their whole organisation, " +
+            "with total headcount, salary totals and role mix for everyone under them")
+    @ApiResponse(responseCode = "200", description = "Spans of control retrieved successfully")
+    public ResponseEntity<List<Map<String, Object>>> getSpansOfControl(
+            @Parameter(description = "Maximum number of managers to return (capped by app.analytics.max-results)")
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(rollupService.getSpansOfControl(limit));
+    }
+
+    @GetMapping("/span-of-control/{managerId}")
+    @Operation(summary = "Get a manager's span of control", description = "Get direct reports, total headcount, total/average/min/max salary " +
+            "and role counts for everyone under a manager, directly or indirectly")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Span of control retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Employee not found")
+    })
+    public ResponseEntity<Map<String, Object>> getSpanOfControl(
+            @Parameter(description = "ID of the manager")
+            @PathVariable Long managerId) {
+        return ResponseEntity.ok(rollupService.getSpanOfControl(managerId));
+    }
+
+    @GetMapping("/organization")
+    @Operation(summary = "Get organisation totals", description = "Get headcount and payroll for the whole organisation")
+    @ApiResponse(responseCode = "200", description = "Totals retrieved successfully")
+    public ResponseEntity<Map<String, Object>> getOrganizationRollup() {
+        return ResponseEntity.ok(rollupService.getOrganizationRollup());
+    }
+}
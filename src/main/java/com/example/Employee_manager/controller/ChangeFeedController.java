@@ -0,0 +1,47 @@
+package com.example.Employee_manager.controller;
+
+import com.example.Employee_manager.service.ChangeFeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/changes")
+@Tag(name = "Change Feed", description = "Live stream of employee, department and user changes")
+public class ChangeFeedController {
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to changes",
+               description = "Server-Sent Events stream of committed changes. Each 'change' event carries the entity type, "
+                       + "action, id and new state; user account changes are sent to admins only. A 'resync' event means the client missed changes and should reload")
+    @ApiResponse(responseCode = "200", description = "Stream opened")
+    public SseEmitter stream(
+            @Parameter(description = "Id of the last event received, sent automatically by EventSource on reconnect")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // User account changes go to admins only, as they do in the sync endpoint
+        boolean includeUsers = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        return changeFeedService.subscribe(lastEventId, includeUsers);
+    }
+
+    @GetMapping("/metrics")
+    @Operation(summary = "Get change feed metrics", description = "Get subscriber count, last event id and slow-consumer evictions")
+    @ApiResponse(responseCode = "200", description = "Metrics retrieved successfully")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return ResponseEntity.ok(changeFeedService.getMetrics());
+    }
+}
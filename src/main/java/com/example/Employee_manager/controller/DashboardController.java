@@ -0,0 +1,34 @@
+package com.example.Employee_manager.controller;
+
+import com.example.Employee_manager.service.DashboardService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@Tag(name = "Dashboard", description = "APIs for loading the admin dashboard")
+public class DashboardController {
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @GetMapping("/bootstrap")
+    @Operation(summary = "Get dashboard data",
+               description = "Get statistics, departments, hierarchy tree, employees, managers and the current user in one response, read from one consistent snapshot")
+    @ApiResponse(responseCode = "200", description = "Dashboard data retrieved successfully")
+    public ResponseEntity<Map<String, Object>> getBootstrap() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Map<String, Object> bootstrap = dashboardService.getBootstrap(authentication.getName());
+        return ResponseEntity.ok(bootstrap);
+    }
+}
@@ -5,6 +5,7 @@ import com.example.Employee_manager.dto.DepartmentRequest;
 import com.example.Employee_manager.entity.Employee;
 import com.example.Employee_manager.repository.EmployeeRepository;
 import com.example.Employee_manager.service.DepartmentService;
+import com.example.Employee_manager.service.ResourceVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,8 +13,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -26,15 +29,22 @@ public class DepartmentController {
     @Autowired
     private DepartmentService departmentService;
 
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
     @Autowired
     private EmployeeRepository employeeRepository;
 
     @GetMapping
     @Operation(summary = "Get all departments", description = "Retrieve a list of all departments with their managers")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved all departments")
-    public ResponseEntity<List<DepartmentDTO>> getAllDepartments() {
+    public ResponseEntity<List<DepartmentDTO>> getAllDepartments(WebRequest request) {
+        String etag = resourceVersionService.employeeDataEtag("departments");
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ResourceVersionService.REVALIDATE).build();
+        }
         List<DepartmentDTO> departments = departmentService.getAllDepartments();
-        return ResponseEntity.ok(departments);
+        return ResponseEntity.ok().cacheControl(ResourceVersionService.REVALIDATE).body(departments);
     }
 
     @GetMapping("/{id}")
@@ -1,21 +1,39 @@
 package com.example.Employee_manager.controller;
 
+import com.example.Employee_manager.dto.BulkEmployeeRequest;
+import com.example.Employee_manager.dto.BulkSalaryAdjustmentRequest;
 import com.example.Employee_manager.dto.EmployeeDTO;
 import com.example.Employee_manager.dto.EmployeeRequest;
+import com.example.Employee_manager.dto.ReassignManagerRequest;
+import com.example.Employee_manager.dto.UploadJobDTO;
+import com.example.Employee_manager.service.EmployeeBulkService;
+import com.example.Employee_manager.service.EmployeeImportService;
 import com.example.Employee_manager.service.EmployeeService;
 import com.example.Employee_manager.service.FileUploadService;
+import com.example.Employee_manager.service.ManagerAssignmentService;
+import com.example.Employee_manager.service.ResourceVersionService;
+import com.example.Employee_manager.service.UploadQueueService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/employees")
@@ -28,12 +46,31 @@ public class EmployeeController {
     @Autowired
     private FileUploadService fileUploadService;
 
+    @Autowired
+    private UploadQueueService uploadQueueService;
+
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
+    @Autowired
+    private EmployeeImportService employeeImportService;
+
+    @Autowired
+    private EmployeeBulkService employeeBulkService;
+
+    @Autowired
+    private ManagerAssignmentService managerAssignmentService;
+
     @GetMapping
     @Operation(summary = "Get all employees", description = "Retrieve a list of all employees with their managers")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved all employees")
-    public ResponseEntity<List<EmployeeDTO>> getAllEmployees() {
+    public ResponseEntity<List<EmployeeDTO>> getAllEmployees(WebRequest request) {
+        String etag = resourceVersionService.employeeDataEtag("employees");
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ResourceVersionService.REVALIDATE).build();
+        }
         List<EmployeeDTO> employees = employeeService.getAllEmployees();
-        return ResponseEntity.ok(employees);
+        return ResponseEntity.ok().cacheControl(ResourceVersionService.REVALIDATE).body(employees);
     }
 
     @GetMapping("/{id}")
@@ -78,6 +115,108 @@ public class EmployeeController {
         return ResponseEntity.ok(updatedEmployee);
     }
 
+    @PostMapping("/import")
+    @Operation(summary = "Import employees", description = "Bulk import employees from a CSV file with the columns " +
+            "name, surname, birthDate (yyyy-MM-dd), employeeNumber, salary, role and optionally email, " +
+            "managerEmployeeNumber, departmentId or departmentName. Managers may be existing employees or rows of the same file. " +
+            "Valid rows are imported; rejected rows are listed with their line number")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Import finished; see the errors for rejected rows"),
+            @ApiResponse(responseCode = "400", description = "File is empty, malformed or missing required columns"),
+            @ApiResponse(responseCode = "403", description = "Only admins can import employees")
+    })
+    public ResponseEntity<Map<String, Object>> importEmployees(
+            @Parameter(description = "CSV file to import")
+            @RequestParam("file") MultipartFile file) throws IOException {
+        try (Reader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            Map<String, Object> result = employeeImportService.importCsv(reader);
+            return ResponseEntity.ok(result);
+        }
+    }
+
+    @PutMapping("/{id}/manager")
+    @Operation(summary = "Change manager", description = "Move an employee, together with everyone reporting to them, under a new manager")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Manager changed successfully"),
+            @ApiResponse(responseCode = "400", description = "Employee or manager not found, or the move would create a reporting loop")
+    })
+    public ResponseEntity<EmployeeDTO> reparentEmployee(
+            @Parameter(description = "ID of the employee to move")
+            @PathVariable Long id,
+            @Parameter(description = "New manager")
+            @RequestBody ReassignManagerRequest request) {
+        EmployeeDTO employee = employeeService.reparentEmployee(id, request.getManagerId());
+        return ResponseEntity.ok(employee);
+    }
+
+    @PostMapping("/{managerId}/team/move")
+    @Operation(summary = "Move a team", description = "Reassign all direct reports of a manager to another manager in a single update")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Team moved successfully"),
+            @ApiResponse(responseCode = "400", description = "Manager not found, or the target manager is part of the team")
+    })
+    public ResponseEntity<Map<String, Object>> moveTeam(
+            @Parameter(description = "ID of the team's current manager")
+            @PathVariable Long managerId,
+            @Parameter(description = "New manager for the team")
+            @RequestBody ReassignManagerRequest request) {
+        Map<String, Object> result = employeeService.moveTeam(managerId, request.getManagerId());
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/bulk/salary")
+    @Operation(summary = "Bulk salary adjustment", description = "Change the salary of every employee matching a filter by a percentage, in a single update")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Salaries adjusted, or counted on a dry run"),
+            @ApiResponse(responseCode = "400", description = "Missing filter or percentage out of range")
+    })
+    public ResponseEntity<Map<String, Object>> adjustSalaries(
+            @Valid @RequestBody BulkSalaryAdjustmentRequest request,
+            @Parameter(description = "Only count the employees that would change")
+            @RequestParam(defaultValue = "false") boolean dryRun) {
+        return ResponseEntity.ok(employeeBulkService.adjustSalaries(request, dryRun));
+    }
+
+    @PostMapping("/bulk/department")
+    @Operation(summary = "Bulk department move", description = "Move a set of employees into one department in a single update")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Employees moved, or counted on a dry run"),
+            @ApiResponse(responseCode = "400", description = "Department or an employee not found, or too many employees")
+    })
+    public ResponseEntity<Map<String, Object>> moveToDepartment(
+            @Valid @RequestBody BulkEmployeeRequest request,
+            @Parameter(description = "Only count the employees that would change")
+            @RequestParam(defaultValue = "false") boolean dryRun) {
+        return ResponseEntity.ok(employeeBulkService.moveToDepartment(request, dryRun));
+    }
+
+    @PostMapping("/bulk/delete")
+    @Operation(summary = "Bulk delete", description = "Delete a set of employees in a single statement; nobody outside the set may report to them")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Employees deleted, or counted on a dry run"),
+            @ApiResponse(responseCode = "400", description = "An employee not found, or the set manages employees outside it")
+    })
+    public ResponseEntity<Map<String, Object>> deleteEmployees(
+            @Valid @RequestBody BulkEmployeeRequest request,
+            @Parameter(description = "Only validate and count the employees that would be deleted")
+            @RequestParam(defaultValue = "false") boolean dryRun) {
+        return ResponseEntity.ok(employeeBulkService.deleteEmployees(request, dryRun));
+    }
+
+    @PostMapping("/manager-assignments/reconcile")
+    @Operation(summary = "Reconcile manager assignments", description = "Make every manager report to the CEO and belong to the department they manage; skipped while another run holds the lock")
+    @ApiResponse(responseCode = "200", description = "Reconciliation completed or skipped")
+    public ResponseEntity<Map<String, Object>> reconcileManagerAssignments() {
+        return ResponseEntity.ok(managerAssignmentService.reconcile("manual"));
+    }
+
+    @GetMapping("/manager-assignments/status")
+    @Operation(summary = "Manager assignment reconciliation status", description = "Phase of the running reconciliation, or the outcome of the last one")
+    @ApiResponse(responseCode = "200", description = "Status retrieved successfully")
+    public ResponseEntity<Map<String, Object>> getManagerAssignmentStatus() {
+        return ResponseEntity.ok(managerAssignmentService.getProgress());
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete employee", description = "Delete an employee by ID")
     @ApiResponses({
@@ -132,20 +271,48 @@ public class EmployeeController {
     }
 
     @PostMapping("/{id}/upload-profile-picture")
-    @Operation(summary = "Upload profile picture", description = "Upload a profile picture for an employee")
+    @Operation(summary = "Upload profile picture", description = "Queue a profile picture for an employee; processing happens in the background")
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Profile picture uploaded successfully"),
+            @ApiResponse(responseCode = "202", description = "Profile picture accepted for processing"),
             @ApiResponse(responseCode = "400", description = "Invalid file or employee not found"),
-            @ApiResponse(responseCode = "404", description = "Employee not found")
+            @ApiResponse(responseCode = "503", description = "Upload queue is full")
     })
-    public ResponseEntity<EmployeeDTO> uploadProfilePicture(
+    public ResponseEntity<UploadJobDTO> uploadProfilePicture(
             @Parameter(description = "ID of the employee")
             @PathVariable Long id,
             @Parameter(description = "Profile picture file")
             @RequestParam("file") MultipartFile file) {
         try {
-            EmployeeDTO updatedEmployee = employeeService.uploadProfilePicture(id, file);
-            return ResponseEntity.ok(updatedEmployee);
+            UploadJobDTO job = uploadQueueService.submit(id, file);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping(value = "/{id}/profile-picture", consumes = {"image/*", "application/octet-stream"})
+    @Operation(summary = "Stream profile picture",
+               description = "Upload a profile picture as the raw request body. The body is read once: it is hashed, "
+                       + "type-checked and size-checked while it is written, so oversized or non-image uploads are rejected early")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Profile picture accepted for processing"),
+            @ApiResponse(responseCode = "400", description = "Invalid image or employee not found"),
+            @ApiResponse(responseCode = "503", description = "Upload queue is full")
+    })
+    public ResponseEntity<UploadJobDTO> streamProfilePicture(
+            @Parameter(description = "ID of the employee")
+            @PathVariable Long id,
+            @Parameter(description = "Optional original file name, kept for reference only")
+            @RequestHeader(value = "X-Filename", required = false) String originalFilename,
+            HttpServletRequest request) {
+        try {
+            UploadJobDTO job = uploadQueueService.submitStream(
+                    id, request.getInputStream(), request.getContentLengthLong(), originalFilename);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -1,16 +1,32 @@
 package com.example.Employee_manager.controller;
 
 import com.example.Employee_manager.dto.EmployeeDTO;
+import com.example.Employee_manager.dto.EmployeePairRequest;
+import com.example.Employee_manager.dto.OrgChartNodeDTO;
 import com.example.Employee_manager.service.HierarchyService;
+import com.example.Employee_manager.service.OrgChartService;
+import com.example.Employee_manager.service.ResourceVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -22,12 +38,100 @@ public class HierarchyController {
     @Autowired
     private HierarchyService hierarchyService;
 
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
+    @Autowired
+    private OrgChartService orgChartService;
+
     @GetMapping("/tree")
     @Operation(summary = "Get organization hierarchy tree", description = "Get the complete organizational hierarchy as a tree structure")
-    @ApiResponse(responseCode = "200", description = "Hierarchy tree retrieved successfully")
-    public ResponseEntity<List<HierarchyService.HierarchyNode>> getHierarchyTree() {
-        List<HierarchyService.HierarchyNode> tree = hierarchyService.buildHierarchyTree();
-        return ResponseEntity.ok(tree);
+    @ApiResponse(responseCode = "200", description = "Hierarchy tree retrieved successfully",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    array = @ArraySchema(schema = @Schema(implementation = HierarchyService.HierarchyNode.class))))
+    public ResponseEntity<byte[]> getHierarchyTree(WebRequest request) {
+        String etag = resourceVersionService.employeeDataEtag("hierarchy-tree");
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ResourceVersionService.REVALIDATE).build();
+        }
+        // The snapshot already holds the serialized tree, so this is a plain byte copy
+        byte[] tree = hierarchyService.getSnapshot().treeJson();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(ResourceVersionService.REVALIDATE)
+                .body(tree);
+    }
+
+    @GetMapping("/roots")
+    @Operation(summary = "Get org chart roots", description = "Get the top of the org chart (employees without a manager), expanded a bounded number of levels")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Roots retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid paging parameters")
+    })
+    public ResponseEntity<Map<String, Object>> getOrgChartRoots(
+            @Parameter(description = "Number of roots to skip")
+            @RequestParam(defaultValue = "0") int offset,
+            @Parameter(description = "Levels of reports to include below each root (capped by app.hierarchy.max-depth)")
+            @RequestParam(defaultValue = "1") int depth,
+            @Parameter(description = "Maximum roots, and reports per node, to include (capped by app.hierarchy.max-child-limit)")
+            @RequestParam(defaultValue = "20") int childLimit,
+            WebRequest request) {
+        String etag = resourceVersionService.employeeDataEtag("hierarchy-roots");
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ResourceVersionService.REVALIDATE).build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(ResourceVersionService.REVALIDATE)
+                .body(orgChartService.getRoots(offset, depth, childLimit));
+    }
+
+    @GetMapping("/subtree/{rootId}")
+    @Operation(summary = "Get org chart subtree", description = "Get an employee and their reports down to a maximum depth, with a bounded number of reports per node. " +
+            "Every node carries its direct report count and subtree size; nodes with hasMoreChildren can be expanded on demand")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Subtree retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Employee not found or invalid parameters")
+    })
+    public ResponseEntity<OrgChartNodeDTO> getSubtree(
+            @Parameter(description = "ID of the employee at the top of the subtree")
+            @PathVariable Long rootId,
+            @Parameter(description = "Levels of reports to include (capped by app.hierarchy.max-depth)")
+            @RequestParam(defaultValue = "2") int depth,
+            @Parameter(description = "Maximum reports to include per node (capped by app.hierarchy.max-child-limit)")
+            @RequestParam(defaultValue = "20") int childLimit,
+            WebRequest request) {
+        String etag = resourceVersionService.employeeDataEtag("hierarchy-subtree");
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ResourceVersionService.REVALIDATE).build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(ResourceVersionService.REVALIDATE)
+                .body(orgChartService.getSubtree(rootId, depth, childLimit));
+    }
+
+    @GetMapping("/subtree/{managerId}/children")
+    @Operation(summary = "Get a page of direct reports", description = "Get the next page of a node's direct reports, each expanded to the given depth")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Direct reports retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Employee not found or invalid parameters")
+    })
+    public ResponseEntity<Map<String, Object>> getSubtreeChildren(
+            @Parameter(description = "ID of the manager")
+            @PathVariable Long managerId,
+            @Parameter(description = "Number of direct reports to skip")
+            @RequestParam(defaultValue = "0") int offset,
+            @Parameter(description = "Maximum direct reports to return (capped by app.hierarchy.max-child-limit)")
+            @RequestParam(defaultValue = "20") int limit,
+            @Parameter(description = "Levels of reports to include below each returned report")
+            @RequestParam(defaultValue = "0") int depth,
+            WebRequest request) {
+        String etag = resourceVersionService.employeeDataEtag("hierarchy-children");
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ResourceVersionService.REVALIDATE).build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(ResourceVersionService.REVALIDATE)
+                .body(orgChartService.getChildren(managerId, offset, limit, depth));
     }
 
     @GetMapping("/path/{employeeId}")
@@ -56,12 +160,83 @@ public class HierarchyController {
         return ResponseEntity.ok(subordinates);
     }
 
+    @GetMapping(value = "/subordinates/{managerId}/export", produces = "text/csv")
+    @Operation(summary = "Export a manager's team", description = "Stream all direct and indirect reports of a manager as CSV, in hierarchy order")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Export streamed successfully"),
+            @ApiResponse(responseCode = "400", description = "Manager not found")
+    })
+    public ResponseEntity<StreamingResponseBody> exportSubordinates(
+            @Parameter(description = "ID of the manager")
+            @PathVariable Long managerId) {
+        // Fail before the response is committed when the manager does not exist
+        hierarchyService.requireEmployee(managerId);
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            hierarchyService.exportSubtree(managerId, writer);
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"team-" + managerId + ".csv\"")
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
+    @GetMapping("/reachable")
+    @Operation(summary = "Check reporting line", description = "Check whether an employee reports to a manager, directly or indirectly")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Check completed"),
+            @ApiResponse(responseCode = "400", description = "Employee or manager not found")
+    })
+    public ResponseEntity<Map<String, Object>> checkReachability(
+            @Parameter(description = "ID of the manager")
+            @RequestParam Long managerId,
+            @Parameter(description = "ID of the employee")
+            @RequestParam Long employeeId) {
+        return ResponseEntity.ok(hierarchyService.checkReachability(managerId, employeeId));
+    }
+
+    @GetMapping("/common-manager")
+    @Operation(summary = "Get lowest common manager", description = "Get the lowest manager two employees both report to, and how many levels apart they are. " +
+            "When one employee manages the other, that employee is the common manager")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Common manager resolved"),
+            @ApiResponse(responseCode = "400", description = "Employee not found")
+    })
+    public ResponseEntity<Map<String, Object>> getCommonManager(
+            @Parameter(description = "ID of the first employee")
+            @RequestParam Long employeeId,
+            @Parameter(description = "ID of the second employee")
+            @RequestParam Long otherEmployeeId) {
+        return ResponseEntity.ok(hierarchyService.findCommonManager(employeeId, otherEmployeeId));
+    }
+
+    @PostMapping("/common-manager/batch")
+    @Operation(summary = "Get lowest common managers in bulk", description = "Resolve the common manager and distance for many employee pairs in one call, " +
+            "up to app.hierarchy.max-pairs-per-batch pairs; unknown employees are reported per pair")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Pairs resolved"),
+            @ApiResponse(responseCode = "400", description = "Too many pairs or invalid input")
+    })
+    public ResponseEntity<List<Map<String, Object>>> getCommonManagers(
+            @Parameter(description = "Employee pairs to resolve")
+            @RequestBody List<EmployeePairRequest> pairs) {
+        return ResponseEntity.ok(hierarchyService.findCommonManagers(pairs));
+    }
+
     @GetMapping("/statistics")
     @Operation(summary = "Get hierarchy statistics", description = "Get statistics about the organizational hierarchy")
-    @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
-    public ResponseEntity<Map<String, Object>> getHierarchyStatistics() {
-        Map<String, Object> statistics = hierarchyService.getHierarchyStatistics();
-        return ResponseEntity.ok(statistics);
+    @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(type = "object")))
+    public ResponseEntity<byte[]> getHierarchyStatistics(WebRequest request) {
+        String etag = resourceVersionService.employeeDataEtag("hierarchy-statistics");
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ResourceVersionService.REVALIDATE).build();
+        }
+        byte[] statistics = hierarchyService.getSnapshot().statisticsJson();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(ResourceVersionService.REVALIDATE)
+                .body(statistics);
     }
 }
 
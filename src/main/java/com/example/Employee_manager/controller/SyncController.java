@@ -0,0 +1,43 @@
+package com.example.Employee_manager.controller;
+
+import com.example.Employee_manager.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sync")
+@Tag(name = "Delta Sync", description = "APIs for incrementally syncing employee, department and user data")
+public class SyncController {
+
+    @Autowired
+    private SyncService syncService;
+
+    @GetMapping
+    @Operation(summary = "Get changes since a token",
+               description = "Get employees, departments and (for admins) users inserted or updated after the token, "
+                       + "plus the ids of deleted rows. Omit the token for a full sync; pass the returned token next time")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Changes retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid sync token")
+    })
+    public ResponseEntity<Map<String, Object>> getChanges(
+            @Parameter(description = "Token returned by the previous sync")
+            @RequestParam(required = false) String since) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        // User accounts are admin-only, as they are under /api/users
+        boolean includeUsers = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        Map<String, Object> changes = syncService.getChangesSince(since, includeUsers);
+        return ResponseEntity.ok(changes);
+    }
+}
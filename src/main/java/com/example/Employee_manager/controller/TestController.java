@@ -4,7 +4,6 @@ import com.example.Employee_manager.service.DepartmentService;
 import com.example.Employee_manager.service.EmployeeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -36,16 +35,6 @@ public class TestController {
         return result.toString();
     }
 
-    @GetMapping("/ensure-manager-assignments")
-    public String ensureManagerAssignments() {
-        try {
-            employeeService.ensureManagerAssignments();
-            return "Manager assignments updated successfully! All managers now have CEO as their manager and are assigned to their departments.";
-        } catch (Exception e) {
-            return "Error updating manager assignments: " + e.getMessage();
-        }
-    }
-
     @GetMapping("/debug-managers")
     public String debugManagers() {
         StringBuilder result = new StringBuilder();
@@ -0,0 +1,44 @@
+package com.example.Employee_manager.controller;
+
+import com.example.Employee_manager.dto.UploadJobDTO;
+import com.example.Employee_manager.service.UploadQueueService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/uploads")
+@Tag(name = "Upload Processing", description = "APIs for tracking background profile picture processing")
+public class UploadJobController {
+
+    @Autowired
+    private UploadQueueService uploadQueueService;
+
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Get upload job status", description = "Get the processing status of a queued profile picture upload")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Upload job found"),
+            @ApiResponse(responseCode = "400", description = "Upload job not found")
+    })
+    public ResponseEntity<UploadJobDTO> getJob(
+            @Parameter(description = "ID of the upload job")
+            @PathVariable Long jobId) {
+        UploadJobDTO job = uploadQueueService.getJob(jobId);
+        return ResponseEntity.ok(job);
+    }
+
+    @GetMapping("/metrics")
+    @Operation(summary = "Get upload queue metrics", description = "Get queue depth, worker usage and processing times")
+    @ApiResponse(responseCode = "200", description = "Metrics retrieved successfully")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = uploadQueueService.getMetrics();
+        return ResponseEntity.ok(metrics);
+    }
+}
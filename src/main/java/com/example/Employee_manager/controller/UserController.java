@@ -11,9 +11,11 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -127,6 +129,19 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping(value = "/with-employee-info", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get users with employee information", description = "Stream all users, optionally of one role, with their employee record, department and manager, read by a single query (Admin only)")
+    @ApiResponse(responseCode = "200", description = "Users streamed successfully")
+    public ResponseEntity<StreamingResponseBody> getUsersWithEmployeeInfo(
+            @Parameter(description = "Only users with this role, e.g. ROLE_MANAGER")
+            @RequestParam(required = false) String role) {
+        StreamingResponseBody body = outputStream -> userService.writeUsersWithEmployeeInfo(role, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     @PostMapping("/initialize")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Initialize default users", description = "Create default users if none exist (Admin only)")
@@ -1,18 +1,22 @@
 package com.example.Employee_manager.controller;
 
+import com.example.Employee_manager.dto.UploadJobDTO;
 import com.example.Employee_manager.entity.Employee;
-import com.example.Employee_manager.entity.User;
 import com.example.Employee_manager.service.EmployeeService;
+import com.example.Employee_manager.service.ResourceVersionService;
+import com.example.Employee_manager.service.UploadQueueService;
 import com.example.Employee_manager.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.HashMap;
@@ -30,71 +34,33 @@ public class UserProfileController {
     @Autowired
     private EmployeeService employeeService;
 
+    @Autowired
+    private UploadQueueService uploadQueueService;
+
     @GetMapping("/current-user")
     @Operation(summary = "Get current user profile information", 
                description = "Returns the profile information of the currently logged-in user")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "User profile retrieved successfully"),
+        @ApiResponse(responseCode = "304", description = "Profile unchanged since the ETag in If-None-Match"),
         @ApiResponse(responseCode = "404", description = "User not found")
     })
-    public ResponseEntity<Map<String, Object>> getCurrentUserProfile() {
+    public ResponseEntity<Map<String, Object>> getCurrentUserProfile(WebRequest request) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             String username = authentication.getName();
             
-            // Get user information
-            Optional<User> userOpt = userService.getUserByUsername(username);
-            if (userOpt.isEmpty()) {
+            // Cached per user until their account, employee record, department or manager changes,
+            // so a polling refresh is a cache lookup and, when nothing changed, a bodiless 304
+            UserService.CachedProfile profile = userService.getProfile(username);
+            if (profile == null) {
                 return ResponseEntity.notFound().build();
             }
-            
-            User user = userOpt.get();
-            
-            // Get employee information
-            Optional<Employee> employeeOpt = employeeService.findByEmail(username);
-            Employee employee = employeeOpt.orElse(null);
-            
-            Map<String, Object> profileData = new HashMap<>();
-            
-            if (employee != null) {
-                // User has employee record
-                profileData.put("id", employee.getId());
-                profileData.put("name", employee.getName());
-                profileData.put("surname", employee.getSurname());
-                profileData.put("email", employee.getEmail());
-                profileData.put("role", employee.getRole());
-                profileData.put("employeeNumber", employee.getEmployeeNumber());
-                profileData.put("gravatarUrl", employee.getGravatarUrl());
-                
-                // Department information
-                if (employee.getDepartment() != null) {
-                    profileData.put("departmentName", employee.getDepartment().getName());
-                } else {
-                    profileData.put("departmentName", null);
-                }
-                
-                // Manager information
-                if (employee.getManager() != null) {
-                    profileData.put("managerName", employee.getManager().getName() + " " + employee.getManager().getSurname());
-                } else {
-                    profileData.put("managerName", null);
-                }
-            } else {
-                // User without employee record
-                profileData.put("id", user.getId());
-                profileData.put("name", user.getUsername().split("@")[0]);
-                profileData.put("surname", "User");
-                profileData.put("email", user.getUsername());
-                profileData.put("role", user.getRole());
-                profileData.put("employeeNumber", "USR-" + user.getId());
-                profileData.put("departmentName", null);
-                profileData.put("managerName", null);
-                
-                // Generate Gravatar URL for user
-                profileData.put("gravatarUrl", generateGravatarUrl(user.getUsername()));
+            if (request.checkNotModified(profile.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ResourceVersionService.REVALIDATE).build();
             }
-            
-            return ResponseEntity.ok(profileData);
+
+            return ResponseEntity.ok().cacheControl(ResourceVersionService.REVALIDATE).body(profile.profile());
             
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
@@ -105,28 +71,16 @@ public class UserProfileController {
     @Operation(summary = "Upload profile picture for current user", 
                description = "Uploads a profile picture for the currently logged-in user")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Profile picture uploaded successfully"),
+        @ApiResponse(responseCode = "202", description = "Profile picture accepted for processing"),
         @ApiResponse(responseCode = "400", description = "Invalid file or file too large"),
-        @ApiResponse(responseCode = "404", description = "User not found")
+        @ApiResponse(responseCode = "404", description = "User not found"),
+        @ApiResponse(responseCode = "503", description = "Upload queue is full")
     })
     public ResponseEntity<Map<String, String>> uploadProfilePicture(@RequestParam("file") MultipartFile file) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             String username = authentication.getName();
             
-            // Validate file
-            if (file.isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of("error", "File is empty"));
-            }
-            
-            if (!file.getContentType().startsWith("image/")) {
-                return ResponseEntity.badRequest().body(Map.of("error", "File must be an image"));
-            }
-            
-            if (file.getSize() > 5 * 1024 * 1024) { // 5MB limit
-                return ResponseEntity.badRequest().body(Map.of("error", "File size must be less than 5MB"));
-            }
-            
             // Find employee by email
             Optional<Employee> employeeOpt = employeeService.findByEmail(username);
             if (employeeOpt.isEmpty()) {
@@ -135,47 +89,22 @@ public class UserProfileController {
             
             Employee employee = employeeOpt.get();
             
-            // Upload file using employee service
-            var result = employeeService.uploadProfilePicture(employee.getId(), file);
-            String fileName = result.getProfilePicturePath();
+            // Queue the file; validation failures are reported straight away
+            UploadJobDTO job = uploadQueueService.submit(employee.getId(), file);
             
             Map<String, String> response = new HashMap<>();
-            response.put("message", "Profile picture uploaded successfully");
-            response.put("fileName", fileName);
-            response.put("gravatarUrl", result.getGravatarUrl());
+            response.put("message", "Profile picture accepted for processing");
+            response.put("jobId", String.valueOf(job.getId()));
+            response.put("status", job.getStatus());
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body(Map.of("error", "Failed to upload profile picture"));
         }
     }
-
-    private String generateGravatarUrl(String email) {
-        if (email == null || email.trim().isEmpty()) {
-            return "https://www.gravatar.com/avatar/placeholder?s=200&d=identicon";
-        }
-        
-        try {
-            String emailLower = email.trim().toLowerCase();
-            byte[] emailBytes = emailLower.getBytes();
-
-            java.security.MessageDigest md = java.security.MessageDigest.getInstance("MD5");
-            byte[] hashBytes = md.digest(emailBytes);
-
-            // Convert byte array to hex string
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-
-            return "https://www.gravatar.com/avatar/" + hexString.toString() + "?s=200&d=identicon";
-        } catch (java.security.NoSuchAlgorithmException e) {
-            return "https://www.gravatar.com/avatar/placeholder?s=200&d=identicon";
-        }
-    }
 }
@@ -0,0 +1,25 @@
+package com.example.Employee_manager.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+@Schema(description = "A set of employees for a bulk department move or delete")
+public class BulkEmployeeRequest {
+
+    @NotEmpty(message = "Employee ids are mandatory")
+    @Schema(description = "IDs of the employees to change", example = "[4, 5, 6]", required = true)
+    private List<Long> employeeIds;
+
+    @Schema(description = "Target department; required for a department move", example = "2")
+    private Long departmentId;
+
+    public BulkEmployeeRequest() {}
+
+    public List<Long> getEmployeeIds() { return employeeIds; }
+    public void setEmployeeIds(List<Long> employeeIds) { this.employeeIds = employeeIds; }
+
+    public Long getDepartmentId() { return departmentId; }
+    public void setDepartmentId(Long departmentId) { this.departmentId = departmentId; }
+}
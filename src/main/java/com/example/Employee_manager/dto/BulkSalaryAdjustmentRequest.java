@@ -0,0 +1,47 @@
+package com.example.Employee_manager.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+@Schema(description = "Salary change by percentage for every employee matching the filter; at least one filter is required")
+public class BulkSalaryAdjustmentRequest {
+
+    @NotNull(message = "Percentage is mandatory")
+    @Schema(description = "Change in percent; negative values lower salaries", example = "5.0", required = true)
+    private Double percentage;
+
+    @Schema(description = "Only employees in this department", example = "1")
+    private Long departmentId;
+
+    @Schema(description = "Only direct reports of this manager", example = "3")
+    private Long managerId;
+
+    @Schema(description = "Only employees with exactly this role (case-insensitive)", example = "Software Engineer")
+    private String role;
+
+    @Schema(description = "Only salaries of at least this amount", example = "50000.0")
+    private Double minSalary;
+
+    @Schema(description = "Only salaries of at most this amount", example = "90000.0")
+    private Double maxSalary;
+
+    public BulkSalaryAdjustmentRequest() {}
+
+    public Double getPercentage() { return percentage; }
+    public void setPercentage(Double percentage) { this.percentage = percentage; }
+
+    public Long getDepartmentId() { return departmentId; }
+    public void setDepartmentId(Long departmentId) { this.departmentId = departmentId; }
+
+    public Long getManagerId() { return managerId; }
+    public void setManagerId(Long managerId) { this.managerId = managerId; }
+
+    public String getRole() { return role; }
+    public void setRole(String role) { this.role = role; }
+
+    public Double getMinSalary() { return minSalary; }
+    public void setMinSalary(Double minSalary) { this.minSalary = minSalary; }
+
+    public Double getMaxSalary() { return maxSalary; }
+    public void setMaxSalary(Double maxSalary) { this.maxSalary = maxSalary; }
+}
@@ -3,6 +3,7 @@ package com.example.Employee_manager.dto;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 import java.time.LocalDate;
+import java.util.Map;
 
 @Schema(description = "Employee Data Transfer Object")
 public class EmployeeDTO {
@@ -43,6 +44,9 @@ public class EmployeeDTO {
     @Schema(description = "Profile picture path", example = "employee_123.jpg")
     private String profilePicturePath;
 
+    @Schema(description = "Pre-sized profile picture URLs keyed by pixel size", example = "{\"32\": \"/uploads/profile-pictures/employee_123_32.jpg\"}")
+    private Map<Integer, String> profilePictureVariants;
+
     @Schema(description = "Department ID", example = "1")
     private Long departmentId;
 
@@ -163,6 +167,14 @@ public class EmployeeDTO {
         this.profilePicturePath = profilePicturePath;
     }
 
+    public Map<Integer, String> getProfilePictureVariants() {
+        return profilePictureVariants;
+    }
+
+    public void setProfilePictureVariants(Map<Integer, String> profilePictureVariants) {
+        this.profilePictureVariants = profilePictureVariants;
+    }
+
     public Long getDepartmentId() {
         return departmentId;
     }
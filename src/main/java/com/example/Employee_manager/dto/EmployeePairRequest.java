@@ -0,0 +1,39 @@
+package com.example.Employee_manager.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+
+@Schema(description = "Two employees to relate in the reporting structure")
+public class EmployeePairRequest {
+
+    @NotNull(message = "Employee ID is mandatory")
+    @Schema(description = "First employee ID", example = "12", required = true)
+    private Long employeeId;
+
+    @NotNull(message = "Other employee ID is mandatory")
+    @Schema(description = "Second employee ID", example = "27", required = true)
+    private Long otherEmployeeId;
+
+    public EmployeePairRequest() {}
+
+    public EmployeePairRequest(Long employeeId, Long otherEmployeeId) {
+        this.employeeId = employeeId;
+        this.otherEmployeeId = otherEmployeeId;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(Long employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public Long getOtherEmployeeId() {
+        return otherEmployeeId;
+    }
+
+    public void setOtherEmployeeId(Long otherEmployeeId) {
+        this.otherEmployeeId = otherEmployeeId;
+    }
+}
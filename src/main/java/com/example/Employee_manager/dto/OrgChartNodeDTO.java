@@ -0,0 +1,122 @@
+package com.example.Employee_manager.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Employee node of a lazily expanded org chart")
+public class OrgChartNodeDTO {
+
+    @Schema(description = "Employee ID", example = "1")
+    private Long id;
+
+    @Schema(description = "Employee first name", example = "John")
+    private String name;
+
+    @Schema(description = "Employee surname", example = "Doe")
+    private String surname;
+
+    @Schema(description = "Employee role", example = "Software Engineer")
+    private String role;
+
+    @Schema(description = "Department name", example = "Engineering")
+    private String departmentName;
+
+    @Schema(description = "Avatar URL, the 64px variant when one exists", example = "/uploads/profile-pictures/3f2a_64.jpg")
+    private String avatarUrl;
+
+    @Schema(description = "Number of direct reports", example = "6")
+    private int childCount;
+
+    @Schema(description = "Number of employees in this subtree, including this employee", example = "42")
+    private int subtreeSize;
+
+    @Schema(description = "Loaded direct reports; null when this node was not expanded")
+    private List<OrgChartNodeDTO> children;
+
+    @Schema(description = "Whether more direct reports exist than were loaded", example = "false")
+    private boolean hasMoreChildren;
+
+    public OrgChartNodeDTO() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSurname() {
+        return surname;
+    }
+
+    public void setSurname(String surname) {
+        this.surname = surname;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public String getDepartmentName() {
+        return departmentName;
+    }
+
+    public void setDepartmentName(String departmentName) {
+        this.departmentName = departmentName;
+    }
+
+    public String getAvatarUrl() {
+        return avatarUrl;
+    }
+
+    public void setAvatarUrl(String avatarUrl) {
+        this.avatarUrl = avatarUrl;
+    }
+
+    public int getChildCount() {
+        return childCount;
+    }
+
+    public void setChildCount(int childCount) {
+        this.childCount = childCount;
+    }
+
+    public int getSubtreeSize() {
+        return subtreeSize;
+    }
+
+    public void setSubtreeSize(int subtreeSize) {
+        this.subtreeSize = subtreeSize;
+    }
+
+    public List<OrgChartNodeDTO> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<OrgChartNodeDTO> children) {
+        this.children = children;
+    }
+
+    public boolean isHasMoreChildren() {
+        return hasMoreChildren;
+    }
+
+    public void setHasMoreChildren(boolean hasMoreChildren) {
+        this.hasMoreChildren = hasMoreChildren;
+    }
+}
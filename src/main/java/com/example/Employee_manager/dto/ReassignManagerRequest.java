@@ -0,0 +1,24 @@
+package com.example.Employee_manager.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "New manager for an employee or a team")
+public class ReassignManagerRequest {
+
+    @Schema(description = "ID of the new manager; omit to make the employee a top-level employee", example = "3")
+    private Long managerId;
+
+    public ReassignManagerRequest() {}
+
+    public ReassignManagerRequest(Long managerId) {
+        this.managerId = managerId;
+    }
+
+    public Long getManagerId() {
+        return managerId;
+    }
+
+    public void setManagerId(Long managerId) {
+        this.managerId = managerId;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.Employee_manager.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Status of a queued profile picture upload")
+public class UploadJobDTO {
+
+    @Schema(description = "Upload job ID", example = "42")
+    private Long id;
+
+    @Schema(description = "Employee the picture belongs to", example = "7")
+    private Long employeeId;
+
+    @Schema(description = "Processing status", example = "PENDING")
+    private String status;
+
+    @Schema(description = "Stored file name once processing completed", example = "employee_7_3f2a.png")
+    private String resultFilename;
+
+    @Schema(description = "Reason the upload failed", example = "Image dimensions are too large: 20000x20000")
+    private String errorMessage;
+
+    @Schema(description = "When the upload was accepted")
+    private LocalDateTime createdAt;
+
+    @Schema(description = "When processing finished")
+    private LocalDateTime completedAt;
+
+    public UploadJobDTO() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(Long employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getResultFilename() {
+        return resultFilename;
+    }
+
+    public void setResultFilename(String resultFilename) {
+        this.resultFilename = resultFilename;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -6,11 +6,14 @@ import jakarta.validation.constraints.Size;
 import java.util.Objects;
 
 @Entity
-@Table(name = "departments")
-public class Department {
+@Table(name = "departments", indexes = @Index(name = "idx_departments_row_version", columnList = "row_version"))
+@EntityListeners(SyncVersionListener.class)
+public class Department implements SyncVersioned {
     
+    // Pooled sequence ids let Hibernate batch inserts; see IdSequenceMigration for existing databases
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "departments_seq")
+    @SequenceGenerator(name = "departments_seq", sequenceName = "departments_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Department name is mandatory")
@@ -29,6 +32,10 @@ public class Department {
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
     
+    // Sync version of the last insert or update, see SyncVersionListener
+    @Column(name = "row_version")
+    private Long rowVersion;
+    
     // Constructors
     public Department() {}
     
@@ -79,6 +86,14 @@ public class Department {
         this.isActive = isActive;
     }
     
+    public Long getRowVersion() {
+        return rowVersion;
+    }
+    
+    public void setRowVersion(Long rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
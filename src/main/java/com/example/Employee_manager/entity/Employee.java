@@ -5,15 +5,22 @@ import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Past;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 import java.util.Objects;
 
 @Entity
-@Table(name = "employees")
-public class Employee {
+@Table(name = "employees", indexes = @Index(name = "idx_employees_row_version", columnList = "row_version"))
+@EntityListeners(SyncVersionListener.class)
+// Updates write only changed columns, so an edit that leaves the manager alone never writes back a
+// manager_id read outside the reporting line lock (see ReportingLineService)
+@DynamicUpdate
+public class Employee implements SyncVersioned {
+    // Pooled sequence ids let Hibernate batch inserts; see IdSequenceMigration for existing databases
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employees_seq")
+    @SequenceGenerator(name = "employees_seq", sequenceName = "employees_seq", allocationSize = 50)
     private long id;
 
     @NotBlank(message = "Name is mandatory")
@@ -55,6 +62,10 @@ public class Employee {
     @JoinColumn(name = "department_id")
     private Department department;
 
+    // Sync version of the last insert or update, see SyncVersionListener
+    @Column(name = "row_version")
+    private Long rowVersion;
+
     public Employee() {
 
     }
@@ -159,6 +170,14 @@ public class Employee {
         this.department = department;
     }
 
+    public Long getRowVersion() {
+        return rowVersion;
+    }
+
+    public void setRowVersion(Long rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
     // Helper method for Gravatar
 //    public String getGravatarUrl() {
 //        if (email == null || email.trim().isEmpty()) {
@@ -189,6 +208,11 @@ public class Employee {
 //    }
 
     public String getGravatarUrl() {
+        return avatarUrl(email, profilePicturePath);
+    }
+
+    // Avatar for an employee's email and uploaded picture, usable without loading the entity
+    public static String avatarUrl(String email, String profilePicturePath) {
         // If user has uploaded a profile picture, use that instead of Gravatar
         if (profilePicturePath != null && !profilePicturePath.trim().isEmpty()) {
             return "/uploads/profile-pictures/" + profilePicturePath;
@@ -0,0 +1,57 @@
+package com.example.Employee_manager.entity;
+
+import com.example.Employee_manager.event.EntityChangeEvent;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Records a delete so sync clients can drop the row locally
+@Entity
+@Table(name = "sync_tombstones", indexes = @Index(name = "idx_sync_tombstones_row_version", columnList = "row_version"))
+public class SyncTombstone {
+
+    // Sequence ids so the tombstones of a bulk delete are inserted as a batch
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sync_tombstones_seq")
+    @SequenceGenerator(name = "sync_tombstones_seq", sequenceName = "sync_tombstones_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private EntityChangeEvent.EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "row_version", nullable = false)
+    private Long rowVersion;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    // Constructors
+    public SyncTombstone() {}
+
+    public SyncTombstone(EntityChangeEvent.EntityType entityType, Long entityId, Long rowVersion) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.rowVersion = rowVersion;
+        this.deletedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public EntityChangeEvent.EntityType getEntityType() { return entityType; }
+    public void setEntityType(EntityChangeEvent.EntityType entityType) { this.entityType = entityType; }
+
+    public Long getEntityId() { return entityId; }
+    public void setEntityId(Long entityId) { this.entityId = entityId; }
+
+    public Long getRowVersion() { return rowVersion; }
+    public void setRowVersion(Long rowVersion) { this.rowVersion = rowVersion; }
+
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(LocalDateTime deletedAt) { this.deletedAt = deletedAt; }
+}
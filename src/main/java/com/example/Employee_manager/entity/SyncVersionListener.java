@@ -0,0 +1,28 @@
+package com.example.Employee_manager.entity;
+
+import com.example.Employee_manager.service.SyncVersionService;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+// Stamps every insert and update with the next sync version.
+// Bulk JPQL updates bypass entity callbacks and must set row_version themselves.
+@Component
+public class SyncVersionListener {
+
+    // Lazy: Hibernate creates this listener while the EntityManagerFactory that the
+    // service's repositories need is still being built
+    @Lazy
+    @Autowired
+    private SyncVersionService syncVersionService;
+
+    @PrePersist
+    @PreUpdate
+    public void stamp(Object entity) {
+        if (entity instanceof SyncVersioned versioned) {
+            versioned.setRowVersion(syncVersionService.next());
+        }
+    }
+}
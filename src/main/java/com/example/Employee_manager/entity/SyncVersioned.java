@@ -0,0 +1,9 @@
+package com.example.Employee_manager.entity;
+
+// Entities that carry a row version for delta sync
+public interface SyncVersioned {
+
+    Long getRowVersion();
+
+    void setRowVersion(Long rowVersion);
+}
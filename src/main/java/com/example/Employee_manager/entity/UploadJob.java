@@ -0,0 +1,107 @@
+package com.example.Employee_manager.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "upload_jobs", indexes = @Index(name = "idx_upload_jobs_status", columnList = "status"))
+public class UploadJob {
+
+    public enum Status {
+        PENDING, PROCESSING, COMPLETED, FAILED
+    }
+
+    // Pooled sequence ids like the other entities: enqueueing a job needs no sequence call per row
+    // and the insert can wait for the flush instead of running at persist
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "upload_jobs_seq")
+    @SequenceGenerator(name = "upload_jobs_seq", sequenceName = "upload_jobs_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "employee_id", nullable = false)
+    private Long employeeId;
+
+    @Column(name = "staged_path", nullable = false)
+    private String stagedPath;
+
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    // SHA-256 computed while the upload was staged, so the worker does not read the file again
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    // Stored picture whose blob reference the job holds until it is handed to the employee,
+    // so a job resumed after its staged file was moved can still finish or release it
+    @Column(name = "stored_filename")
+    private String storedFilename;
+
+    @Column(name = "result_filename")
+    private String resultFilename;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Constructors
+    public UploadJob() {}
+
+    public UploadJob(Long employeeId, String stagedPath, String originalFilename, String contentHash) {
+        this.employeeId = employeeId;
+        this.stagedPath = stagedPath;
+        this.originalFilename = originalFilename;
+        this.contentHash = contentHash;
+        this.status = Status.PENDING;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getEmployeeId() { return employeeId; }
+    public void setEmployeeId(Long employeeId) { this.employeeId = employeeId; }
+
+    public String getStagedPath() { return stagedPath; }
+    public void setStagedPath(String stagedPath) { this.stagedPath = stagedPath; }
+
+    public String getOriginalFilename() { return originalFilename; }
+    public void setOriginalFilename(String originalFilename) { this.originalFilename = originalFilename; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getStoredFilename() { return storedFilename; }
+    public void setStoredFilename(String storedFilename) { this.storedFilename = storedFilename; }
+
+    public String getResultFilename() { return resultFilename; }
+    public void setResultFilename(String resultFilename) { this.resultFilename = resultFilename; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
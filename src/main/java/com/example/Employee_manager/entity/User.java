@@ -5,11 +5,14 @@ import java.util.Collection;
 import java.util.Collections;
 
 @Entity
-@Table(name = "users")
-public class User {
+@Table(name = "users", indexes = @Index(name = "idx_users_row_version", columnList = "row_version"))
+@EntityListeners(SyncVersionListener.class)
+public class User implements SyncVersioned {
 
+    // Pooled sequence ids let Hibernate batch inserts; see IdSequenceMigration for existing databases
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -24,6 +27,10 @@ public class User {
     @Column(nullable = false)
     private boolean enabled = true;
 
+    // Sync version of the last insert or update, see SyncVersionListener
+    @Column(name = "row_version")
+    private Long rowVersion;
+
     // Constructors
     public User() {}
 
@@ -48,4 +55,7 @@ public class User {
 
     public boolean isEnabled() { return enabled; }
     public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Long getRowVersion() { return rowVersion; }
+    public void setRowVersion(Long rowVersion) { this.rowVersion = rowVersion; }
 }
\ No newline at end of file
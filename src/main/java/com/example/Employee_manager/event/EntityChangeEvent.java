@@ -0,0 +1,69 @@
+package com.example.Employee_manager.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// A create, update or delete made by the service layer. Services publish it inside their
+// transaction; listeners such as the change feed only see it once that transaction commits.
+public class EntityChangeEvent {
+
+    public enum EntityType {
+        EMPLOYEE, DEPARTMENT, USER
+    }
+
+    public enum Action {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final EntityType entityType;
+    private final Action action;
+    private final Long entityId;
+    // The entity's new DTO, or null for deletes and for changes made as a side effect,
+    // in which case clients refetch the entity by id
+    private final Object payload;
+    // Every affected id when one set-based statement changed many rows; entityId is then null
+    private final List<Long> entityIds;
+    private final LocalDateTime occurredAt;
+
+    public EntityChangeEvent(EntityType entityType, Action action, Long entityId, Object payload) {
+        this(entityType, action, entityId, payload, null);
+    }
+
+    private EntityChangeEvent(EntityType entityType, Action action, Long entityId, Object payload, List<Long> entityIds) {
+        this.entityType = entityType;
+        this.action = action;
+        this.entityId = entityId;
+        this.payload = payload;
+        this.entityIds = entityIds;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public static EntityChangeEvent created(EntityType entityType, Long entityId, Object payload) {
+        return new EntityChangeEvent(entityType, Action.CREATED, entityId, payload);
+    }
+
+    public static EntityChangeEvent updated(EntityType entityType, Long entityId, Object payload) {
+        return new EntityChangeEvent(entityType, Action.UPDATED, entityId, payload);
+    }
+
+    public static EntityChangeEvent deleted(EntityType entityType, Long entityId) {
+        return new EntityChangeEvent(entityType, Action.DELETED, entityId, null);
+    }
+
+    // One event for a whole batch, so listeners invalidate once rather than once per row
+    public static EntityChangeEvent bulk(EntityType entityType, Action action, List<Long> entityIds) {
+        return new EntityChangeEvent(entityType, action, null, null, List.copyOf(entityIds));
+    }
+
+    public boolean isBulk() {
+        return entityIds != null;
+    }
+
+    // Getters
+    public EntityType getEntityType() { return entityType; }
+    public Action getAction() { return action; }
+    public Long getEntityId() { return entityId; }
+    public Object getPayload() { return payload; }
+    public List<Long> getEntityIds() { return entityIds; }
+    public LocalDateTime getOccurredAt() { return occurredAt; }
+}
@@ -2,10 +2,13 @@ package com.example.Employee_manager.repository;
 
 import com.example.Employee_manager.entity.Department;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +33,20 @@ public interface DepartmentRepository extends JpaRepository<Department, Long> {
     @Query("SELECT d FROM Department d WHERE d.manager.id = :managerId")
     Optional<Department> findByManagerId(@Param("managerId") Long managerId);
     
+    @Query("SELECT d.id FROM Department d WHERE d.manager.id IN :managerIds")
+    List<Long> findIdsByManagerIdIn(@Param("managerIds") Collection<Long> managerIds);
+
+    // Leave the departments of the given managers without a manager, in one statement
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Department d SET d.manager = NULL, d.rowVersion = :version WHERE d.manager.id IN :managerIds")
+    int clearManagers(@Param("managerIds") Collection<Long> managerIds, @Param("version") long version);
+    
+    // Resync the departments of a manager whose name changed, in one statement. The persistence
+    // context is kept: only the version changes, and a later write of a loaded row stamps its own.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Department d SET d.rowVersion = :version WHERE d.manager.id = :managerId")
+    int touchManagedBy(@Param("managerId") Long managerId, @Param("version") long version);
+    
     // Count employees in department (including the manager)
     @Query("SELECT " +
            "  (SELECT COUNT(e) FROM Employee e WHERE e.department.id = :departmentId) + " +
@@ -39,5 +56,18 @@ public interface DepartmentRepository extends JpaRepository<Department, Long> {
     // Find all departments with manager information
     @Query("SELECT d FROM Department d LEFT JOIN FETCH d.manager ORDER BY d.name")
     List<Department> findAllWithManagers();
-    
+
+    // Departments inserted or updated in the sync version range (since, until]
+    @Query("SELECT d FROM Department d LEFT JOIN FETCH d.manager " +
+           "WHERE d.rowVersion > :since AND d.rowVersion <= :until ORDER BY d.rowVersion")
+    List<Department> findChangedBetween(@Param("since") long since, @Param("until") long until);
+
+    @Query("SELECT COALESCE(MAX(d.rowVersion), 0) FROM Department d")
+    long findMaxRowVersion();
+
+    // Give rows created before row versions existed a version so they sync once
+    @Transactional
+    @Modifying
+    @Query("UPDATE Department d SET d.rowVersion = :version WHERE d.rowVersion IS NULL")
+    int backfillRowVersion(@Param("version") long version);
 }
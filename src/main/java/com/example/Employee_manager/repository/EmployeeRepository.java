@@ -1,11 +1,18 @@
 package com.example.Employee_manager.repository;
 
+import com.example.Employee_manager.entity.Department;
 import com.example.Employee_manager.entity.Employee;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,9 +25,132 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     // Find employee by email
     Optional<Employee> findByEmail(String email);
 
+    // Find employee and lock the row for an atomic read-modify-write
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Employee e WHERE e.id = :id")
+    Optional<Employee> findByIdForUpdate(@Param("id") Long id);
+
     // Find employees by manager
     List<Employee> findByManagerId(Long managerId);
 
+    // Ids of a manager's direct reports, locked until the end of the transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e.id FROM Employee e WHERE e.manager.id = :managerId ORDER BY e.id")
+    List<Long> findIdsByManagerIdForUpdate(@Param("managerId") Long managerId);
+
+    // Move every direct report of one manager to another in a single statement
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Employee e SET e.manager = :newManager, e.rowVersion = :version WHERE e.manager.id = :managerId")
+    int reassignReports(@Param("managerId") Long managerId,
+                        @Param("newManager") Employee newManager,
+                        @Param("version") long version);
+
+    // The employee and every manager above them, read from the rows by walking manager_id upward.
+    // UNION stops the walk at a row already seen, so an existing loop cannot make it run forever.
+    @Query(value = "WITH RECURSIVE chain(id) AS (" +
+                   "SELECT CAST(:id AS BIGINT) " +
+                   "UNION SELECT e.manager_id FROM employees e JOIN chain c ON e.id = c.id WHERE e.manager_id IS NOT NULL" +
+                   ") SELECT id FROM chain", nativeQuery = true)
+    List<Long> findManagementChainIds(@Param("id") Long id);
+
+    // Resync the rows that show a renamed manager or department, in one statement each. The
+    // persistence context is kept: only the version changes, and a later write of a loaded row stamps its own.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Employee e SET e.rowVersion = :version WHERE e.manager.id = :managerId")
+    int touchReports(@Param("managerId") Long managerId, @Param("version") long version);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Employee e SET e.rowVersion = :version WHERE e.department.id = :departmentId")
+    int touchDepartmentMembers(@Param("departmentId") Long departmentId, @Param("version") long version);
+
+    // Filter of a bulk salary review; a null parameter does not restrict
+    String SALARY_REVIEW_FILTER = "e.salary IS NOT NULL " +
+            "AND (:departmentId IS NULL OR e.department.id = :departmentId) " +
+            "AND (:managerId IS NULL OR e.manager.id = :managerId) " +
+            "AND (:role IS NULL OR LOWER(e.role) = LOWER(:role)) " +
+            "AND (:minSalary IS NULL OR e.salary >= :minSalary) " +
+            "AND (:maxSalary IS NULL OR e.salary <= :maxSalary)";
+
+    @Query("SELECT COUNT(e) FROM Employee e WHERE " + SALARY_REVIEW_FILTER)
+    long countForSalaryReview(@Param("departmentId") Long departmentId,
+                              @Param("managerId") Long managerId,
+                              @Param("role") String role,
+                              @Param("minSalary") Double minSalary,
+                              @Param("maxSalary") Double maxSalary);
+
+    // Scale every matching salary in a single statement, rounded to cents
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Employee e SET e.salary = ROUND(e.salary * :factor, 2), e.rowVersion = :version WHERE " + SALARY_REVIEW_FILTER)
+    int adjustSalaries(@Param("factor") double factor,
+                       @Param("version") long version,
+                       @Param("departmentId") Long departmentId,
+                       @Param("managerId") Long managerId,
+                       @Param("role") String role,
+                       @Param("minSalary") Double minSalary,
+                       @Param("maxSalary") Double maxSalary);
+
+    // Rows written by one set-based statement, which all carry that statement's version
+    @Query("SELECT e.id FROM Employee e WHERE e.rowVersion = :version ORDER BY e.id")
+    List<Long> findIdsByRowVersion(@Param("version") long version);
+
+    // Which of the given employees exist, locked until the end of the transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e.id FROM Employee e WHERE e.id IN :ids ORDER BY e.id")
+    List<Long> findIdsByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(e) FROM Employee e WHERE e.id IN :ids AND (e.department IS NULL OR e.department.id <> :departmentId)")
+    long countOutsideDepartment(@Param("ids") Collection<Long> ids, @Param("departmentId") Long departmentId);
+
+    @Query("SELECT DISTINCT e.department.id FROM Employee e WHERE e.id IN :ids AND e.department IS NOT NULL")
+    List<Long> findDepartmentIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Employee e SET e.department = :department, e.rowVersion = :version " +
+           "WHERE e.id IN :ids AND (e.department IS NULL OR e.department <> :department)")
+    int moveToDepartment(@Param("ids") Collection<Long> ids,
+                         @Param("department") Department department,
+                         @Param("version") long version);
+
+    // Employees outside the given set who report to someone in it
+    @Query("SELECT COUNT(e) FROM Employee e WHERE e.manager.id IN :ids AND e.id NOT IN :ids")
+    long countReportsOutside(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT e.profilePicturePath FROM Employee e WHERE e.id IN :ids AND e.profilePicturePath IS NOT NULL")
+    List<String> findProfilePicturePathsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Detach the set from its own members first, so the delete never depends on row order
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Employee e SET e.manager = NULL WHERE e.manager.id IN :ids")
+    int clearManagerWithin(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Employee e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Same test as EmployeeService.isManagerRole, for set-based statements
+    String MANAGER_ROLE_FILTER = "(LOWER(e.role) LIKE '%manager%' OR LOWER(e.role) LIKE '%lead%' " +
+            "OR LOWER(e.role) LIKE '%director%' OR LOWER(e.role) LIKE '%supervisor%' " +
+            "OR LOWER(e.role) LIKE '%chief%' OR LOWER(e.role) LIKE '%head%')";
+
+    // Employees whose role marks them as CEO, lowest id first
+    @Query("SELECT e FROM Employee e WHERE LOWER(e.role) LIKE '%ceo%' OR LOWER(e.role) LIKE '%chief executive officer%' ORDER BY e.id")
+    List<Employee> findCeoCandidates(Pageable pageable);
+
+    // Point every manager-role employee except the excluded ones at the CEO in a single statement
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Employee e SET e.manager = :ceo, e.rowVersion = :version WHERE " + MANAGER_ROLE_FILTER +
+           " AND e.id NOT IN :excludedIds AND (e.manager IS NULL OR e.manager <> :ceo)")
+    int assignManagersToCeo(@Param("ceo") Employee ceo,
+                            @Param("excludedIds") Collection<Long> excludedIds,
+                            @Param("version") long version);
+
+    // Put manager-role employees without a department into the department they manage
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Employee e SET e.department = (SELECT d FROM Department d WHERE d.manager = e), e.rowVersion = :version " +
+           "WHERE e.department IS NULL AND " + MANAGER_ROLE_FILTER +
+           " AND EXISTS (SELECT d.id FROM Department d WHERE d.manager = e)")
+    int assignManagedDepartments(@Param("version") long version);
+
     // Find employees without a manager (CEO position)
     List<Employee> findByManagerIsNull();
 
@@ -30,10 +160,48 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     // Find by name or surname containing (for search)
     List<Employee> findByNameContainingIgnoreCaseOrSurnameContainingIgnoreCase(String name, String surname);
 
+    // Manager picker candidates (see EmployeeService.isManagerPickerRole) with what their DTOs show
+    @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.manager LEFT JOIN FETCH e.department " +
+           "WHERE LOWER(e.role) LIKE '%manager%' OR LOWER(e.role) LIKE '%lead%' " +
+           "OR LOWER(e.role) LIKE '%director%' OR LOWER(e.role) LIKE '%supervisor%' ORDER BY e.id")
+    List<Employee> findManagerPickerCandidates();
+
+    // Employees with a manager role, other than the CEO, who do not manage a department yet (anti-join)
+    @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.manager LEFT JOIN FETCH e.department " +
+           "WHERE LOWER(e.role) LIKE '%manager%' " +
+           "AND LOWER(e.role) NOT LIKE '%ceo%' AND LOWER(e.role) NOT LIKE '%chief executive officer%' " +
+           "AND NOT EXISTS (SELECT d.id FROM Department d WHERE d.manager = e) ORDER BY e.id")
+    List<Employee> findAvailableDepartmentManagers();
+
+    // Employees with a manager role and no manager of their own, other than the CEO
+    @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.department " +
+           "WHERE e.manager IS NULL AND LOWER(e.role) LIKE '%manager%' " +
+           "AND LOWER(e.role) <> 'ceo' AND LOWER(e.role) <> 'chief executive officer' ORDER BY e.id")
+    List<Employee> findTopLevelManagers();
+
     // Custom query to get full hierarchy with departments
     @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.manager LEFT JOIN FETCH e.department ORDER BY e.manager.id NULLS FIRST, e.id")
     List<Employee> findAllWithManagers();
 
+    // The columns of the org chart and hierarchy tree: id, name, surname, role, email, picture, manager id,
+    // department name, then birth date, employee number, salary and department id for the tree's employee DTOs
+    @Query("SELECT e.id, e.name, e.surname, e.role, e.email, e.profilePicturePath, m.id, d.name, " +
+           "e.birthDate, e.employeeNumber, e.salary, d.id " +
+           "FROM Employee e LEFT JOIN e.manager m LEFT JOIN e.department d ORDER BY e.surname, e.name, e.id")
+    List<Object[]> findOrgChartRows();
+
+    // Only the columns the subtree rollups need: id, manager id, name, surname, role, salary
+    @Query("SELECT e.id, m.id, e.name, e.surname, e.role, e.salary FROM Employee e LEFT JOIN e.manager m")
+    List<Object[]> findRollupRows();
+
+    // Keys a bulk import checks against: id, employee number, email, role
+    @Query("SELECT e.id, e.employeeNumber, e.email, e.role FROM Employee e")
+    List<Object[]> findImportKeys();
+
+    // Employees by id with their manager and department, for batch lookups
+    @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.manager LEFT JOIN FETCH e.department WHERE e.id IN :ids")
+    List<Employee> findAllWithManagersByIdIn(@Param("ids") Collection<Long> ids);
+
     // Advanced search with multiple criteria
     @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.manager LEFT JOIN FETCH e.department WHERE " +
            "(:searchTerm IS NULL OR :searchTerm = '' OR " +
@@ -67,4 +235,18 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     // Find employees by department name
     @Query("SELECT e FROM Employee e WHERE e.department.name = :departmentName")
     List<Employee> findByDepartmentName(@Param("departmentName") String departmentName);
-}
\ No newline at end of file
+
+    // Employees inserted or updated in the sync version range (since, until]
+    @Query("SELECT e FROM Employee e LEFT JOIN FETCH e.manager LEFT JOIN FETCH e.department " +
+           "WHERE e.rowVersion > :since AND e.rowVersion <= :until ORDER BY e.rowVersion")
+    List<Employee> findChangedBetween(@Param("since") long since, @Param("until") long until);
+
+    @Query("SELECT COALESCE(MAX(e.rowVersion), 0) FROM Employee e")
+    long findMaxRowVersion();
+
+    // Give rows created before row versions existed a version so they sync once
+    @Transactional
+    @Modifying
+    @Query("UPDATE Employee e SET e.rowVersion = :version WHERE e.rowVersion IS NULL")
+    int backfillRowVersion(@Param("version") long version);
+}
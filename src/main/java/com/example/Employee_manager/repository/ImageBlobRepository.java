@@ -0,0 +1,38 @@
+package com.example.Employee_manager.repository;
+
+import com.example.Employee_manager.entity.ImageBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+    // Add a reference to an existing blob
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.refCount = b.refCount + 1, b.releasedAt = NULL WHERE b.hash = :hash")
+    int acquire(@Param("hash") String hash);
+
+    // Drop a reference; the sweeper removes the blob once nothing points at it
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageBlob b SET b.refCount = b.refCount - 1, b.releasedAt = :now WHERE b.hash = :hash AND b.refCount > 0")
+    int release(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    // Find blobs that have been unreferenced for longer than the grace period
+    @Query("SELECT b FROM ImageBlob b WHERE b.refCount <= 0 AND b.releasedAt < :cutoff")
+    List<ImageBlob> findUnreferencedSince(@Param("cutoff") LocalDateTime cutoff);
+
+    // Delete a blob row only if it is still unreferenced
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ImageBlob b WHERE b.hash = :hash AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+}
@@ -0,0 +1,20 @@
+package com.example.Employee_manager.repository;
+
+import com.example.Employee_manager.entity.SyncTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+    // Deletes in the sync version range (since, until]
+    @Query("SELECT t FROM SyncTombstone t WHERE t.rowVersion > :since AND t.rowVersion <= :until ORDER BY t.rowVersion")
+    List<SyncTombstone> findBetween(@Param("since") long since, @Param("until") long until);
+
+    @Query("SELECT COALESCE(MAX(t.rowVersion), 0) FROM SyncTombstone t")
+    long findMaxRowVersion();
+}
@@ -0,0 +1,15 @@
+package com.example.Employee_manager.repository;
+
+import com.example.Employee_manager.entity.UploadJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UploadJobRepository extends JpaRepository<UploadJob, Long> {
+
+    // Find jobs that still need processing (used to resume after a restart)
+    List<UploadJob> findByStatusInOrderByIdAsc(Collection<UploadJob.Status> statuses);
+}
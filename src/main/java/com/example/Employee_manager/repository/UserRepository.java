@@ -1,13 +1,55 @@
 package com.example.Employee_manager.repository;
 
 import com.example.Employee_manager.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
-}
\ No newline at end of file
+
+    // One row per user, left-joined to the employee with their email and that employee's department and manager:
+    // u.id, u.username, u.role, u.enabled, e.id, e.name, e.surname, e.employeeNumber, e.email, d.id, d.name, m.id, m.name, m.surname
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT u.id, u.username, u.role, u.enabled, e.id, e.name, e.surname, e.employeeNumber, e.email, " +
+           "d.id, d.name, m.id, m.name, m.surname " +
+           "FROM User u LEFT JOIN Employee e ON e.email = u.username LEFT JOIN e.department d LEFT JOIN e.manager m " +
+           "WHERE (:role IS NULL OR u.role = :role) ORDER BY u.id")
+    Stream<Object[]> streamUsersWithEmployees(@Param("role") String role);
+
+    // Manager-role users without an employee record, matched by email or (for older data) by id (anti-join)
+    @Query("SELECT u FROM User u WHERE LOWER(u.role) LIKE '%manager%' " +
+           "AND NOT EXISTS (SELECT e.id FROM Employee e WHERE e.email = u.username OR e.id = u.id) ORDER BY u.id")
+    List<User> findManagersWithoutEmployee();
+
+    // As above, leaving out users whose id is already recorded as a department manager
+    @Query("SELECT u FROM User u WHERE LOWER(u.role) LIKE '%manager%' " +
+           "AND NOT EXISTS (SELECT e.id FROM Employee e WHERE e.email = u.username OR e.id = u.id) " +
+           "AND NOT EXISTS (SELECT d.id FROM Department d WHERE d.manager.id = u.id) ORDER BY u.id")
+    List<User> findAvailableManagersWithoutEmployee();
+
+    // Users inserted or updated in the sync version range (since, until]
+    @Query("SELECT u FROM User u WHERE u.rowVersion > :since AND u.rowVersion <= :until ORDER BY u.rowVersion")
+    List<User> findChangedBetween(@Param("since") long since, @Param("until") long until);
+
+    @Query("SELECT COALESCE(MAX(u.rowVersion), 0) FROM User u")
+    long findMaxRowVersion();
+
+    // Give rows created before row versions existed a version so they sync once
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.rowVersion = :version WHERE u.rowVersion IS NULL")
+    int backfillRowVersion(@Param("version") long version);
+}
@@ -31,8 +31,10 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/", "/login", "/init-users", "/css/**", "/js/**", "/images/**", "/uploads/**", "/test-department-counts", "/ensure-manager-assignments", "/debug-managers").permitAll()
+                        .requestMatchers("/", "/login", "/init-users", "/css/**", "/js/**", "/images/**", "/uploads/**", "/test-department-counts", "/debug-managers").permitAll()
                         .requestMatchers("/api/users/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+                        .requestMatchers("/api/employees/bulk/**", "/api/employees/import", "/api/employees/manager-assignments/**").hasRole("ADMIN")
                         .requestMatchers("/dashboard", "/admin-dashboard").hasAnyRole("ADMIN", "MANAGER", "USER")
                         .anyRequest().authenticated()
                 )
@@ -0,0 +1,111 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.config.CacheConfig;
+import com.example.Employee_manager.config.TaggedCaffeineCache;
+import com.example.Employee_manager.dto.EmployeeDTO;
+import com.example.Employee_manager.event.EntityChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Evicts cached DTOs for the change events of EmployeeService, DepartmentService and UserService,
+// once before commit and once after. The second pass removes what readers loaded from the old rows
+// while the transaction was committing. A reader that loaded the old row and stores it after the
+// second pass can still bring it back, until the region's expireAfterWrite TTL drops it. Eviction is
+// by key or tag, so it costs a lookup per affected entry; bulk changes clear the regions.
+@Service
+public class CacheEvictionService {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void beforeCommit(EntityChangeEvent change) {
+        onEntityChange(change);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void afterCommit(EntityChangeEvent change) {
+        onEntityChange(change);
+    }
+
+    private void onEntityChange(EntityChangeEvent change) {
+        switch (change.getEntityType()) {
+            case EMPLOYEE -> onEmployeeChange(change);
+            case DEPARTMENT -> onDepartmentChange(change);
+            case USER -> onUserChange(change);
+        }
+    }
+
+    private void onEmployeeChange(EntityChangeEvent change) {
+        // Department DTOs count employees; roles may have changed
+        clear(CacheConfig.DEPARTMENTS);
+        clear(CacheConfig.ROLES);
+
+        if (change.isBulk()) {
+            clear(CacheConfig.EMPLOYEES);
+            clear(CacheConfig.USER_PROFILES);
+            return;
+        }
+        // The employee, their reports (which show their name), and the profiles that show either
+        String tag = CacheConfig.employeeTag(change.getEntityId());
+        evictTagged(CacheConfig.EMPLOYEES, tag);
+        evictTagged(CacheConfig.USER_PROFILES, tag);
+        if (change.getPayload() instanceof EmployeeDTO employee) {
+            // A user whose profile was built before they had an employee record under this email
+            evict(CacheConfig.USER_PROFILES, employee.getEmail());
+        } else {
+            // Without the new state the email is unknown
+            clear(CacheConfig.USER_PROFILES);
+        }
+    }
+
+    private void onDepartmentChange(EntityChangeEvent change) {
+        clear(CacheConfig.DEPARTMENTS);
+
+        if (change.isBulk()) {
+            clear(CacheConfig.EMPLOYEES);
+            clear(CacheConfig.USER_PROFILES);
+            return;
+        }
+        // Employees and profiles show their department's name
+        String tag = CacheConfig.departmentTag(change.getEntityId());
+        evictTagged(CacheConfig.EMPLOYEES, tag);
+        evictTagged(CacheConfig.USER_PROFILES, tag);
+    }
+
+    private void onUserChange(EntityChangeEvent change) {
+        if (change.isBulk()) {
+            clear(CacheConfig.USER_PROFILES);
+            return;
+        }
+        // By id, so a renamed account leaves nothing behind under its old username
+        evictTagged(CacheConfig.USER_PROFILES, CacheConfig.userTag(change.getEntityId()));
+    }
+
+    private void evict(String name, Object key) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void clear(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private void evictTagged(String name, String tag) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache instanceof TaggedCaffeineCache tagged) {
+            tagged.evictTagged(tag);
+        } else if (cache != null) {
+            cache.clear();
+        }
+    }
+}
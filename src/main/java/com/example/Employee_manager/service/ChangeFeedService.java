@@ -0,0 +1,353 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.event.EntityChangeEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pushes committed entity changes to connected dashboards over Server-Sent Events.
+// A subscriber is an emitter plus a small bounded queue. Whenever its queue has events, the
+// subscriber gets its own writer thread (a virtual thread in virtual-thread mode) that drains it
+// and then ends, so an idle client holds no thread and a client that stops reading blocks only
+// its own writer. A client that cannot keep up fills its queue and is disconnected, and
+// reconnects with Last-Event-ID to replay what it missed (or is told to resync).
+@Service
+public class ChangeFeedService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeedService.class);
+
+    @Value("${app.changes.subscriber-buffer:256}")
+    private int subscriberBuffer;
+
+    @Value("${app.changes.replay-buffer:1024}")
+    private int replayBuffer;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.changes.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${app.changes.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    private ExecutorService writers;
+
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    // Event ids are "<epoch>-<sequence>", so ids from before a restart are recognised as stale
+    private final long epoch = System.currentTimeMillis();
+
+    // Recent events for Last-Event-ID replay, oldest first
+    private final Queue<FeedEvent> recentEvents = new ArrayDeque<>();
+
+    private record FeedEvent(long id, EntityChangeEvent change) {}
+
+    // An emitter that can be ended without waiting for a write in progress: SseEmitter.complete
+    // takes the same lock as send, which a client that stopped reading can hold for a long time
+    static class FeedEmitter extends SseEmitter {
+
+        private final AtomicBoolean completeRequested = new AtomicBoolean();
+
+        FeedEmitter(long timeout) {
+            super(timeout);
+        }
+
+        // Complete now if no write holds the emitter, or else as soon as that write returns
+        void requestComplete() {
+            completeRequested.set(true);
+            completeIfRequested();
+        }
+
+        // Called by the writer after each burst of writes
+        void completeIfRequested() {
+            if (completeRequested.get() && writeLock.tryLock()) {
+                try {
+                    if (completeRequested.compareAndSet(true, false)) {
+                        complete();
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        }
+    }
+
+    private final class Subscriber {
+        final long id;
+        final FeedEmitter emitter;
+        // User accounts are admin-only, as they are under /api/users
+        final boolean includeUsers;
+        final BlockingQueue<FeedEvent> queue;
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        // When the write in progress started, or 0 when none is
+        volatile long sendStartedAt;
+
+        Subscriber(long id, FeedEmitter emitter, boolean includeUsers) {
+            this.id = id;
+            this.emitter = emitter;
+            this.includeUsers = includeUsers;
+            this.queue = new ArrayBlockingQueue<>(subscriberBuffer);
+        }
+
+        boolean receives(FeedEvent event) {
+            return includeUsers || event.change().getEntityType() != EntityChangeEvent.EntityType.USER;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        ThreadFactory threadFactory;
+        if (virtualThreads) {
+            threadFactory = new VirtualThreadTaskExecutor("change-feed-").getVirtualThreadFactory();
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "change-feed-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        // Unbounded: each subscriber has at most one writer at a time, and idle threads are reclaimed
+        writers = Executors.newCachedThreadPool(threadFactory);
+    }
+
+    @PreDestroy
+    void stop() {
+        for (Subscriber subscriber : subscribers.values()) {
+            if (remove(subscriber)) {
+                subscriber.emitter.requestComplete();
+            }
+        }
+        writers.shutdownNow();
+    }
+
+    // Open a stream for a client, replaying events after lastEventId when it is reconnecting.
+    // User changes are sent only when includeUsers is set, which is decided once at subscription.
+    public SseEmitter subscribe(String lastEventId, boolean includeUsers) {
+        FeedEmitter emitter = createEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(subscriberIds.incrementAndGet(), emitter, includeUsers);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+
+        synchronized (recentEvents) {
+            // Register and snapshot the replay under the same lock that publish uses,
+            // so no event is either missed or delivered twice
+            subscribers.put(subscriber.id, subscriber);
+            if (lastEventId != null) {
+                long lastSequence = parseSequence(lastEventId);
+                FeedEvent oldest = recentEvents.peek();
+                if (lastSequence < 0 || (lastSequence < sequence.get() && (oldest == null || oldest.id() > lastSequence + 1))) {
+                    sendControl(subscriber, "resync");
+                } else {
+                    for (FeedEvent event : recentEvents) {
+                        if (event.id() > lastSequence && subscriber.receives(event) && !subscriber.queue.offer(event)) {
+                            sendControl(subscriber, "resync");
+                            subscriber.queue.clear();
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        sendControl(subscriber, "ready");
+        schedule(subscriber);
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEntityChange(EntityChangeEvent change) {
+        synchronized (recentEvents) {
+            FeedEvent event = new FeedEvent(sequence.incrementAndGet(), change);
+            recentEvents.add(event);
+            while (recentEvents.size() > replayBuffer) {
+                recentEvents.poll();
+            }
+
+            for (Subscriber subscriber : subscribers.values()) {
+                if (!subscriber.receives(event)) {
+                    continue;
+                }
+                if (!subscriber.queue.offer(event)) {
+                    // Slow consumer: drop the connection rather than buffer without bound
+                    evict(subscriber);
+                    continue;
+                }
+                schedule(subscriber);
+            }
+        }
+    }
+
+    // Comment lines keep proxies from closing idle streams and reveal dead connections. The writes
+    // run on the subscribers' writers, so a stalled client never holds up the shared scheduler
+    // thread; a subscriber whose write has been stuck longer than the send timeout is dropped.
+    @Scheduled(fixedDelayString = "${app.changes.heartbeat-ms:25000}")
+    public void sendHeartbeats() {
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers.values()) {
+            long started = subscriber.sendStartedAt;
+            if (started != 0 && now - started > sendTimeoutMs) {
+                evict(subscriber);
+            } else if (subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true)) {
+                try {
+                    writers.execute(() -> heartbeat(subscriber));
+                } catch (RejectedExecutionException e) {
+                    subscriber.draining.set(false);
+                }
+            }
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("subscribers", subscribers.size());
+        metrics.put("lastEventId", sequence.get());
+        metrics.put("evicted", evictedCount.get());
+        metrics.put("subscriberBuffer", subscriberBuffer);
+        return metrics;
+    }
+
+    // Sequence number of an event id from this run, or -1 if it is malformed or from an earlier run
+    private long parseSequence(String eventId) {
+        int dash = eventId.indexOf('-');
+        try {
+            if (dash > 0 && Long.parseLong(eventId.substring(0, dash)) == epoch) {
+                return Long.parseLong(eventId.substring(dash + 1));
+            }
+        } catch (NumberFormatException e) {
+            // Treated as unknown below
+        }
+        return -1;
+    }
+
+    FeedEmitter createEmitter(long timeoutMs) {
+        return new FeedEmitter(timeoutMs);
+    }
+
+    // Make sure exactly one writer is draining this subscriber
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.closed.get() && subscriber.draining.compareAndSet(false, true)) {
+            try {
+                writers.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            List<FeedEvent> batch = new ArrayList<>();
+            while (!subscriber.closed.get() && subscriber.queue.drainTo(batch) > 0) {
+                synchronized (subscriber) {
+                    for (FeedEvent event : batch) {
+                        subscriber.sendStartedAt = System.currentTimeMillis();
+                        subscriber.emitter.send(SseEmitter.event()
+                                .id(epoch + "-" + event.id())
+                                .name("change")
+                                .data(event.change(), MediaType.APPLICATION_JSON));
+                    }
+                }
+                batch.clear();
+            }
+        } catch (IOException | IllegalStateException e) {
+            remove(subscriber);
+        } finally {
+            subscriber.sendStartedAt = 0;
+            subscriber.draining.set(false);
+            // Evicted while a write was stuck
+            subscriber.emitter.completeIfRequested();
+        }
+
+        // An event may have arrived after the last drainTo but before the flag was cleared
+        if (!subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    // Runs as the subscriber's writer, so it never interleaves with a drain
+    private void heartbeat(Subscriber subscriber) {
+        try {
+            if (!subscriber.closed.get()) {
+                synchronized (subscriber) {
+                    subscriber.sendStartedAt = System.currentTimeMillis();
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            remove(subscriber);
+        } finally {
+            subscriber.sendStartedAt = 0;
+            subscriber.draining.set(false);
+            subscriber.emitter.completeIfRequested();
+        }
+
+        if (!subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    private void sendControl(Subscriber subscriber, String name) {
+        try {
+            synchronized (subscriber) {
+                subscriber.emitter.send(SseEmitter.event().name(name).data(epoch + "-" + sequence.get()));
+            }
+        } catch (IOException | IllegalStateException e) {
+            remove(subscriber);
+        }
+    }
+
+    // Forget a subscriber whose stream has ended or failed; false if it was already gone
+    private boolean remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        subscribers.remove(subscriber.id);
+        subscriber.queue.clear();
+        return true;
+    }
+
+    private void evict(Subscriber subscriber) {
+        if (!remove(subscriber)) {
+            return;
+        }
+        evictedCount.incrementAndGet();
+        log.debug("Evicting slow change feed subscriber {}", subscriber.id);
+        // Never waits on a write the client is not reading; that writer completes it instead
+        subscriber.emitter.requestComplete();
+    }
+}
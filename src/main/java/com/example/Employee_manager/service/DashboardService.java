@@ -0,0 +1,91 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.dto.DepartmentDTO;
+import com.example.Employee_manager.dto.EmployeeDTO;
+import com.example.Employee_manager.entity.Department;
+import com.example.Employee_manager.entity.Employee;
+import com.example.Employee_manager.entity.User;
+import com.example.Employee_manager.repository.DepartmentRepository;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import com.example.Employee_manager.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+// Everything the admin dashboard needs on load, read from one consistent snapshot.
+// The tables are read once and the DTOs built once; the tree, statistics and manager
+// list are then derived from those in parallel instead of each re-reading the tables.
+@Service
+public class DashboardService {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private DepartmentService departmentService;
+
+    @Autowired
+    private HierarchyService hierarchyService;
+
+    @Autowired
+    private UserService userService;
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Map<String, Object> getBootstrap(String username) {
+        List<Employee> employees = employeeRepository.findAllWithManagers();
+        List<Department> departments = departmentRepository.findAllWithManagers();
+        Optional<User> user = userRepository.findByUsername(username);
+
+        // Entities are only touched on this thread, while the session is open
+        List<EmployeeDTO> employeeDTOs = employeeService.convertToDTOs(employees);
+        List<DepartmentDTO> departmentDTOs = departmentService.convertToDTOs(departments, employees);
+        Map<String, Object> currentUser = user
+                .map(u -> userService.buildProfile(u, findByEmail(employees, username)))
+                .orElse(null);
+
+        // The remaining parts only read the shared DTO list
+        CompletableFuture<HierarchyService.HierarchyTree> tree =
+                CompletableFuture.supplyAsync(() -> hierarchyService.buildTree(employeeDTOs));
+        CompletableFuture<Map<String, Object>> statistics =
+                tree.thenApply(built -> hierarchyService.getHierarchyStatistics(employeeDTOs, built));
+        CompletableFuture<List<EmployeeDTO>> managers = CompletableFuture.supplyAsync(() -> employeeDTOs.stream()
+                .filter(employee -> EmployeeService.isManagerPickerRole(employee.getRole()))
+                .collect(Collectors.toList()));
+
+        Map<String, Object> bootstrap = new HashMap<>();
+        bootstrap.put("employees", employeeDTOs);
+        bootstrap.put("departments", departmentDTOs);
+        bootstrap.put("departmentCount", departmentDTOs.size());
+        bootstrap.put("currentUser", currentUser);
+        bootstrap.put("hierarchyTree", tree.join().roots());
+        bootstrap.put("statistics", statistics.join());
+        bootstrap.put("managers", managers.join());
+        return bootstrap;
+    }
+
+    private Employee findByEmail(List<Employee> employees, String email) {
+        for (Employee employee : employees) {
+            if (email.equals(employee.getEmail())) {
+                return employee;
+            }
+        }
+        return null;
+    }
+}
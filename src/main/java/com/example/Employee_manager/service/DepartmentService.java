@@ -1,20 +1,28 @@
 package com.example.Employee_manager.service;
 
+import com.example.Employee_manager.config.CacheConfig;
 import com.example.Employee_manager.dto.DepartmentDTO;
 import com.example.Employee_manager.dto.DepartmentRequest;
 import com.example.Employee_manager.entity.Department;
 import com.example.Employee_manager.entity.Employee;
 import com.example.Employee_manager.entity.User;
+import com.example.Employee_manager.event.EntityChangeEvent;
 import com.example.Employee_manager.repository.DepartmentRepository;
 import com.example.Employee_manager.repository.EmployeeRepository;
 import com.example.Employee_manager.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -29,8 +37,22 @@ public class DepartmentService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ReportingLineService reportingLineService;
+
+    @Autowired
+    private SyncVersionService syncVersionService;
+
     // Convert Entity to DTO
     private DepartmentDTO convertToDTO(Department department) {
+        // Count employees in this department
+        return convertToDTO(department, departmentRepository.countEmployeesInDepartment(department.getId()));
+    }
+
+    private DepartmentDTO convertToDTO(Department department, long employeeCount) {
         DepartmentDTO dto = new DepartmentDTO();
         dto.setId(department.getId());
         dto.setName(department.getName());
@@ -41,9 +63,7 @@ public class DepartmentService {
             dto.setManagerId(department.getManager().getId());
             dto.setManagerName(department.getManager().getName() + " " + department.getManager().getSurname());
         }
-        
-        // Count employees in this department
-        long employeeCount = departmentRepository.countEmployeesInDepartment(department.getId());
+
         dto.setEmployeeCount(employeeCount);
         
         return dto;
@@ -58,6 +78,7 @@ public class DepartmentService {
     }
 
     // Get all departments
+    @Cacheable(cacheNames = CacheConfig.DEPARTMENTS, key = "'" + CacheConfig.ALL + "'", sync = true)
     public List<DepartmentDTO> getAllDepartments() {
         return departmentRepository.findAllWithManagers()
                 .stream()
@@ -65,7 +86,30 @@ public class DepartmentService {
                 .collect(Collectors.toList());
     }
 
+    // Convert departments that were loaded with their manager
+    public List<DepartmentDTO> convertToDTOs(List<Department> departments) {
+        return departments.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    // Convert departments using employee counts computed from an already loaded employee list.
+    // Counts match countEmployeesInDepartment: members plus one for an assigned manager.
+    public List<DepartmentDTO> convertToDTOs(List<Department> departments, List<Employee> employees) {
+        Map<Long, Long> memberCounts = new HashMap<>();
+        for (Employee employee : employees) {
+            if (employee.getDepartment() != null) {
+                memberCounts.merge(employee.getDepartment().getId(), 1L, Long::sum);
+            }
+        }
+        return departments.stream()
+                .map(department -> convertToDTO(department,
+                        memberCounts.getOrDefault(department.getId(), 0L) + (department.getManager() != null ? 1 : 0)))
+                .collect(Collectors.toList());
+    }
+
     // Get department by ID
+    @Cacheable(cacheNames = CacheConfig.DEPARTMENTS, key = "#id", sync = true)
     public DepartmentDTO getDepartmentById(Long id) {
         Department department = departmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Department not found with id: " + id));
@@ -100,7 +144,9 @@ public class DepartmentService {
         }
 
         Department savedDepartment = departmentRepository.save(department);
-        return convertToDTO(savedDepartment);
+        DepartmentDTO dto = convertToDTO(savedDepartment);
+        eventPublisher.publishEvent(EntityChangeEvent.created(EntityChangeEvent.EntityType.DEPARTMENT, dto.getId(), dto));
+        return dto;
     }
 
     // Update department
@@ -114,6 +160,8 @@ public class DepartmentService {
             throw new RuntimeException("Department name already exists: " + request.getName());
         }
 
+        boolean renamed = !existingDepartment.getName().equals(request.getName());
+
         // Update fields
         existingDepartment.setName(request.getName());
         existingDepartment.setDescription(request.getDescription());
@@ -141,7 +189,12 @@ public class DepartmentService {
         }
 
         Department updatedDepartment = departmentRepository.save(existingDepartment);
-        return convertToDTO(updatedDepartment);
+        DepartmentDTO dto = publishUpdated(updatedDepartment);
+        if (renamed) {
+            // Employees show their department's name, so delta sync must send them again
+            employeeRepository.touchDepartmentMembers(id, syncVersionService.next());
+        }
+        return dto;
     }
 
     // Delete department
@@ -157,6 +210,7 @@ public class DepartmentService {
         }
 
         departmentRepository.delete(department);
+        eventPublisher.publishEvent(EntityChangeEvent.deleted(EntityChangeEvent.EntityType.DEPARTMENT, id));
     }
 
     // Get departments without managers
@@ -177,6 +231,8 @@ public class DepartmentService {
 
     // Assign manager to department
     public DepartmentDTO assignManagerToDepartment(Long departmentId, Long managerId) {
+        // The manager may be placed under the CEO, so read them only once no other reporting line can change
+        reportingLineService.lock();
         Department department = departmentRepository.findById(departmentId)
                 .orElseThrow(() -> new RuntimeException("Department not found with id: " + departmentId));
 
@@ -203,20 +259,23 @@ public class DepartmentService {
             }
             
             manager = employeeRepository.save(newManager);
+            eventPublisher.publishEvent(EntityChangeEvent.created(EntityChangeEvent.EntityType.EMPLOYEE, manager.getId(), null));
         } else {
             // If manager exists in employee table, ensure they are assigned to the department
             // and have CEO as their manager if they have a manager role
             manager.setDepartment(department);
             
             // Ensure CEO is assigned as manager for employees with manager roles
-            if (isManagerRole(manager.getRole())) {
+            if (isManagerRole(manager.getRole()) && manager.getManager() == null) {
                 Employee ceo = findCEO();
-                if (ceo != null && manager.getManager() == null) {
+                // Skip when the CEO reports to this manager, which would close a loop
+                if (ceo != null && !reportingLineService.wouldCreateCycle(manager.getId(), ceo.getId())) {
                     manager.setManager(ceo);
                 }
             }
             
             manager = employeeRepository.save(manager);
+            eventPublisher.publishEvent(EntityChangeEvent.updated(EntityChangeEvent.EntityType.EMPLOYEE, manager.getId(), null));
         }
         // Note: No role validation needed since we're using null manager_id logic
         
@@ -233,7 +292,7 @@ public class DepartmentService {
 
         department.setManager(manager);
         Department savedDepartment = departmentRepository.save(department);
-        return convertToDTO(savedDepartment);
+        return publishUpdated(savedDepartment);
     }
 
     // Remove manager from department
@@ -243,7 +302,13 @@ public class DepartmentService {
 
         department.setManager(null);
         Department savedDepartment = departmentRepository.save(department);
-        return convertToDTO(savedDepartment);
+        return publishUpdated(savedDepartment);
+    }
+
+    private DepartmentDTO publishUpdated(Department department) {
+        DepartmentDTO dto = convertToDTO(department);
+        eventPublisher.publishEvent(EntityChangeEvent.updated(EntityChangeEvent.EntityType.DEPARTMENT, dto.getId(), dto));
+        return dto;
     }
 
     // Get department by manager ID
@@ -271,13 +336,8 @@ public class DepartmentService {
 
     // Find the CEO in the system
     private Employee findCEO() {
-        return employeeRepository.findAll()
-                .stream()
-                .filter(emp -> emp.getRole() != null && 
-                        (emp.getRole().toLowerCase().contains("ceo") || 
-                         emp.getRole().toLowerCase().contains("chief executive officer")))
-                .findFirst()
-                .orElse(null);
+        List<Employee> candidates = employeeRepository.findCeoCandidates(PageRequest.of(0, 1));
+        return candidates.isEmpty() ? null : candidates.get(0);
     }
 
     // Check if a role is a manager role
@@ -294,106 +354,61 @@ public class DepartmentService {
 
     // Get all potential managers (employees with "Manager" in their role who are not already department managers)
     public List<Employee> getAvailableManagers() {
-        List<Employee> allEmployees = employeeRepository.findAll();
-        List<Employee> availableManagers = new ArrayList<>();
-        
-        // Find all employees with "Manager" in their role, excluding CEO
-        for (Employee emp : allEmployees) {
-            // Check if this employee has "Manager" in their role
-            boolean hasManagerRole = emp.getRole() != null && emp.getRole().toLowerCase().contains("manager");
-            // Exclude CEO
-            boolean isNotCEO = emp.getRole() == null || (!emp.getRole().toLowerCase().contains("ceo") && 
-                                                         !emp.getRole().toLowerCase().contains("chief executive officer"));
-            
-            if (hasManagerRole && isNotCEO) {
-                // Check if this employee is already a department manager
-                boolean isAlreadyManager = departmentRepository.findByManagerId(emp.getId()).isPresent();
-                if (!isAlreadyManager) {
-                    availableManagers.add(emp);
-                }
-            }
-        }
-        
+        // Employees with "Manager" in their role, excluding the CEO and current department managers
+        List<Employee> availableManagers = new ArrayList<>(employeeRepository.findAvailableDepartmentManagers());
+
         // If no employees without managers found, create virtual manager records for users without corresponding employees
         if (availableManagers.isEmpty()) {
-            List<User> allUsers = userRepository.findAll();
-            
-            for (User user : allUsers) {
-                // Check if this user already has an employee record
-                boolean hasEmployeeRecord = allEmployees.stream()
-                        .anyMatch(emp -> emp.getEmail().equals(user.getUsername()) || Long.valueOf(emp.getId()).equals(user.getId()));
-                
-                if (!hasEmployeeRecord) {
-                    // Check if this user is already a department manager
-                    boolean isAlreadyManager = departmentRepository.findByManagerId(user.getId()).isPresent();
-                    // Check if this user has "Manager" in their role
-                    boolean hasManagerRole = user.getRole() != null && user.getRole().toLowerCase().contains("manager");
-                    if (!isAlreadyManager && hasManagerRole) {
-                        // Create a virtual employee record for this user
-                        Employee virtualManager = new Employee();
-                        virtualManager.setId(user.getId());
-                        virtualManager.setName(user.getUsername().split("@")[0]);
-                        virtualManager.setSurname("User");
-                        virtualManager.setEmail(user.getUsername());
-                        virtualManager.setEmployeeNumber("USR-" + user.getId());
-                        virtualManager.setRole(user.getRole());
-                        availableManagers.add(virtualManager);
-                    }
-                }
+            for (User user : userRepository.findAvailableManagersWithoutEmployee()) {
+                availableManagers.add(toVirtualManager(user));
             }
         }
-        
+
         return availableManagers;
     }
 
     // Alternative method to get all managers (for debugging) - employees with null manager_id
     public List<Employee> getAllManagers() {
-        List<Employee> allManagers = new ArrayList<>();
-        
-        // Get all employees without managers (null manager_id) and exclude CEO
-        List<Employee> allEmployees = employeeRepository.findAll();
-        List<Employee> employeesWithoutManager = allEmployees.stream()
-                .filter(emp -> emp.getManager() == null && 
-                              !"CEO".equalsIgnoreCase(emp.getRole()) &&
-                              !"Chief Executive Officer".equalsIgnoreCase(emp.getRole()) &&
-                              hasManagerRole(emp))
-                .collect(Collectors.toList());
-        
-        allManagers.addAll(employeesWithoutManager);
-        
+        // Employees without managers (null manager_id), excluding the CEO
+        List<Employee> allManagers = new ArrayList<>(employeeRepository.findTopLevelManagers());
+
         // Add virtual managers for users who don't have employee records
-        List<User> allUsers = userRepository.findAll();
-        
-        for (User user : allUsers) {
-            // Check if this user already has an employee record
-            boolean hasEmployeeRecord = allEmployees.stream()
-                    .anyMatch(emp -> emp.getEmail().equals(user.getUsername()) || Long.valueOf(emp.getId()).equals(user.getId()));
-            
-            if (!hasEmployeeRecord) {
-                // Check if this user has a manager role
-                boolean hasManagerRole = user.getRole() != null && user.getRole().toLowerCase().contains("manager");
-                if (hasManagerRole) {
-                    // Create a virtual employee record for this user
-                    Employee virtualManager = new Employee();
-                    virtualManager.setId(user.getId());
-                    virtualManager.setName(user.getUsername().split("@")[0]);
-                    virtualManager.setSurname("User");
-                    virtualManager.setEmail(user.getUsername());
-                    virtualManager.setEmployeeNumber("USR-" + user.getId());
-                    virtualManager.setRole(user.getRole());
-                    allManagers.add(virtualManager);
-                }
-            }
+        for (User user : userRepository.findManagersWithoutEmployee()) {
+            allManagers.add(toVirtualManager(user));
         }
-        
+
         return allManagers;
     }
 
+    // Unsaved employee record standing in for a manager user who has no employee yet
+    private Employee toVirtualManager(User user) {
+        Employee virtualManager = new Employee();
+        virtualManager.setId(user.getId());
+        virtualManager.setName(user.getUsername().split("@")[0]);
+        virtualManager.setSurname("User");
+        virtualManager.setEmail(user.getUsername());
+        virtualManager.setEmployeeNumber("USR-" + user.getId());
+        virtualManager.setRole(user.getRole());
+        return virtualManager;
+    }
+
     // Get user-employee mapping for debugging
     public java.util.Map<String, Object> getUserEmployeeMapping() {
         List<Employee> allEmployees = employeeRepository.findAll();
-        List<com.example.Employee_manager.entity.User> allUsers = userRepository.findAll();
-        
+
+        // Users come from the same joined query as the admin user list; hash them by both match keys
+        Map<String, String> usersByUsername = new HashMap<>();
+        Map<Long, String> usersById = new HashMap<>();
+        List<String> users = new ArrayList<>();
+        try (Stream<Object[]> rows = userRepository.streamUsersWithEmployees(null)) {
+            rows.forEach(row -> {
+                String user = row[0] + " - " + row[1] + " (" + row[2] + ")";
+                usersByUsername.put((String) row[1], user);
+                usersById.put((Long) row[0], user);
+                users.add(user);
+            });
+        }
+
         java.util.Map<String, Object> result = new java.util.HashMap<>();
         java.util.List<java.util.Map<String, Object>> mappings = new java.util.ArrayList<>();
         
@@ -404,28 +419,18 @@ public class DepartmentService {
             mapping.put("employeeEmail", emp.getEmail());
             
             // Try to find matching user by email
-            com.example.Employee_manager.entity.User userByEmail = userRepository.findByUsername(emp.getEmail()).orElse(null);
-            if (userByEmail != null) {
-                mapping.put("userByEmail", userByEmail.getId() + " - " + userByEmail.getUsername() + " (" + userByEmail.getRole() + ")");
-            } else {
-                mapping.put("userByEmail", "Not found");
-            }
+            mapping.put("userByEmail", usersByUsername.getOrDefault(emp.getEmail(), "Not found"));
             
             // Try to find matching user by ID
-            com.example.Employee_manager.entity.User userById = userRepository.findById(emp.getId()).orElse(null);
-            if (userById != null) {
-                mapping.put("userById", userById.getId() + " - " + userById.getUsername() + " (" + userById.getRole() + ")");
-            } else {
-                mapping.put("userById", "Not found");
-            }
+            mapping.put("userById", usersById.getOrDefault(emp.getId(), "Not found"));
             
             mappings.add(mapping);
         }
         
         result.put("employees", mappings);
         result.put("totalEmployees", allEmployees.size());
-        result.put("totalUsers", allUsers.size());
-        result.put("users", allUsers.stream().map(u -> u.getId() + " - " + u.getUsername() + " (" + u.getRole() + ")").collect(Collectors.toList()));
+        result.put("totalUsers", users.size());
+        result.put("users", users);
         
         return result;
     }
@@ -435,33 +440,17 @@ public class DepartmentService {
     public void initializeDefaultDepartments() {
         // Only create default departments if no departments exist
         if (departmentRepository.count() == 0) {
-            // Create Engineering department
-            DepartmentRequest engineeringDept = new DepartmentRequest();
-            engineeringDept.setName("Engineering");
-            engineeringDept.setDescription("Software development and engineering team");
-            
-            createDepartment(engineeringDept);
-
-            // Create Human Resources department
-            DepartmentRequest hrDept = new DepartmentRequest();
-            hrDept.setName("Human Resources");
-            hrDept.setDescription("Human resources and talent management");
-            
-            createDepartment(hrDept);
-
-            // Create Finance department
-            DepartmentRequest financeDept = new DepartmentRequest();
-            financeDept.setName("Finance");
-            financeDept.setDescription("Financial planning and accounting");
-            
-            createDepartment(financeDept);
-
-            // Create Marketing department
-            DepartmentRequest marketingDept = new DepartmentRequest();
-            marketingDept.setName("Marketing");
-            marketingDept.setDescription("Marketing and brand management");
-            
-            createDepartment(marketingDept);
+            List<Department> defaults = List.of(
+                    new Department("Engineering", "Software development and engineering team"),
+                    new Department("Human Resources", "Human resources and talent management"),
+                    new Department("Finance", "Financial planning and accounting"),
+                    new Department("Marketing", "Marketing and brand management"));
+
+            // One id block from the sequence and one batched insert for all of them
+            for (Department department : departmentRepository.saveAll(defaults)) {
+                DepartmentDTO dto = convertToDTO(department, 0);
+                eventPublisher.publishEvent(EntityChangeEvent.created(EntityChangeEvent.EntityType.DEPARTMENT, dto.getId(), dto));
+            }
         }
     }
 }
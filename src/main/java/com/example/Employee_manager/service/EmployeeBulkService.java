@@ -0,0 +1,194 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.dto.BulkEmployeeRequest;
+import com.example.Employee_manager.dto.BulkSalaryAdjustmentRequest;
+import com.example.Employee_manager.entity.Department;
+import com.example.Employee_manager.event.EntityChangeEvent;
+import com.example.Employee_manager.repository.DepartmentRepository;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Reorg and salary-review changes over many employees. Each operation is a handful of set-based
+// statements in one transaction, and publishes one bulk event per entity type, so caches and
+// version counters are invalidated once per batch. A dry run validates and counts, then stops.
+@Service
+@Transactional
+public class EmployeeBulkService {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private SyncVersionService syncVersionService;
+
+    @Autowired
+    private ReportingLineService reportingLineService;
+
+    @Autowired
+    private FileUploadService fileUploadService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.bulk.max-employees:1000}")
+    private int maxEmployees;
+
+    @Value("${app.bulk.max-salary-change-percent:100}")
+    private double maxSalaryChangePercent;
+
+    // Raise or lower every matching salary by a percentage
+    public Map<String, Object> adjustSalaries(BulkSalaryAdjustmentRequest request, boolean dryRun) {
+        Double percentage = request.getPercentage();
+        if (percentage == null || percentage <= -100 || percentage > maxSalaryChangePercent) {
+            throw new IllegalArgumentException("Percentage must be above -100 and at most " + maxSalaryChangePercent);
+        }
+        String role = request.getRole() != null && !request.getRole().isBlank() ? request.getRole().trim() : null;
+        // An empty filter would silently reprice the whole company
+        if (request.getDepartmentId() == null && request.getManagerId() == null && role == null
+                && request.getMinSalary() == null && request.getMaxSalary() == null) {
+            throw new IllegalArgumentException("At least one filter is required");
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("operation", "salary-adjustment");
+        result.put("percentage", percentage);
+        result.put("dryRun", dryRun);
+        if (dryRun) {
+            result.put("affectedCount", employeeRepository.countForSalaryReview(request.getDepartmentId(),
+                    request.getManagerId(), role, request.getMinSalary(), request.getMaxSalary()));
+            return result;
+        }
+
+        long version = syncVersionService.next();
+        int updated = employeeRepository.adjustSalaries(1 + percentage / 100, version, request.getDepartmentId(),
+                request.getManagerId(), role, request.getMinSalary(), request.getMaxSalary());
+        if (updated > 0) {
+            List<Long> ids = employeeRepository.findIdsByRowVersion(version);
+            eventPublisher.publishEvent(EntityChangeEvent.bulk(
+                    EntityChangeEvent.EntityType.EMPLOYEE, EntityChangeEvent.Action.UPDATED, ids));
+        }
+        result.put("affectedCount", updated);
+        return result;
+    }
+
+    // Move a set of employees into one department
+    public Map<String, Object> moveToDepartment(BulkEmployeeRequest request, boolean dryRun) {
+        if (request.getDepartmentId() == null) {
+            throw new IllegalArgumentException("Department is required");
+        }
+        Long departmentId = request.getDepartmentId();
+        if (!departmentRepository.existsById(departmentId)) {
+            throw new RuntimeException("Department not found with id: " + departmentId);
+        }
+        List<Long> ids = lockEmployees(request.getEmployeeIds());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("operation", "department-move");
+        result.put("departmentId", departmentId);
+        result.put("dryRun", dryRun);
+        if (dryRun) {
+            result.put("affectedCount", employeeRepository.countOutsideDepartment(ids, departmentId));
+            return result;
+        }
+
+        // Departments losing employees change their counts too
+        Set<Long> departmentIds = new LinkedHashSet<>(employeeRepository.findDepartmentIdsByIdIn(ids));
+        departmentIds.add(departmentId);
+        Department department = departmentRepository.getReferenceById(departmentId);
+        long version = syncVersionService.next();
+        int moved = employeeRepository.moveToDepartment(ids, department, version);
+        // Employees already in the department are skipped by the UPDATE; only the moved ones carry its version
+        List<Long> movedIds = moved > 0 ? employeeRepository.findIdsByRowVersion(version) : List.of();
+        if (moved > 0) {
+            eventPublisher.publishEvent(EntityChangeEvent.bulk(
+                    EntityChangeEvent.EntityType.EMPLOYEE, EntityChangeEvent.Action.UPDATED, movedIds));
+            eventPublisher.publishEvent(EntityChangeEvent.bulk(
+                    EntityChangeEvent.EntityType.DEPARTMENT, EntityChangeEvent.Action.UPDATED, new ArrayList<>(departmentIds)));
+        }
+        result.put("affectedCount", moved);
+        result.put("employeeIds", movedIds);
+        return result;
+    }
+
+    // Delete a set of employees that no one outside the set reports to
+    public Map<String, Object> deleteEmployees(BulkEmployeeRequest request, boolean dryRun) {
+        // Reporting lines inside the selection are cleared, so this waits for other manager changes first
+        reportingLineService.lock();
+        List<Long> ids = lockEmployees(request.getEmployeeIds());
+        if (employeeRepository.countReportsOutside(ids) > 0) {
+            throw new RuntimeException("Cannot delete employees who manage employees outside the selection. Reassign subordinates first.");
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("operation", "delete");
+        result.put("dryRun", dryRun);
+        if (dryRun) {
+            result.put("affectedCount", ids.size());
+            return result;
+        }
+
+        List<String> pictures = employeeRepository.findProfilePicturePathsByIdIn(ids);
+        List<Long> departmentIds = departmentRepository.findIdsByManagerIdIn(ids);
+        if (!departmentIds.isEmpty()) {
+            departmentRepository.clearManagers(ids, syncVersionService.next());
+            eventPublisher.publishEvent(EntityChangeEvent.bulk(
+                    EntityChangeEvent.EntityType.DEPARTMENT, EntityChangeEvent.Action.UPDATED, departmentIds));
+        }
+        employeeRepository.clearManagerWithin(ids);
+        int deleted = employeeRepository.deleteByIdIn(ids);
+        eventPublisher.publishEvent(EntityChangeEvent.bulk(
+                EntityChangeEvent.EntityType.EMPLOYEE, EntityChangeEvent.Action.DELETED, ids));
+
+        // Release the pictures so the blob sweeper can reclaim them
+        for (String picture : pictures) {
+            try {
+                fileUploadService.deleteProfilePicture(picture);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not delete profile picture: " + e.getMessage(), e);
+            }
+        }
+
+        result.put("affectedCount", deleted);
+        result.put("employeeIds", ids);
+        return result;
+    }
+
+    // Deduplicate, check the size, and lock the rows; every id must exist
+    private List<Long> lockEmployees(List<Long> employeeIds) {
+        Set<Long> requested = employeeIds != null ? new LinkedHashSet<>(employeeIds) : new LinkedHashSet<>();
+        requested.remove(null);
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("Employee ids are mandatory");
+        }
+        if (requested.size() > maxEmployees) {
+            throw new IllegalArgumentException("At most " + maxEmployees + " employees can be changed at once");
+        }
+
+        List<Long> found = employeeRepository.findIdsByIdInForUpdate(requested);
+        if (found.size() < requested.size()) {
+            Set<Long> existing = new HashSet<>(found);
+            for (Long id : requested) {
+                if (!existing.contains(id)) {
+                    throw new RuntimeException("Employee not found with id: " + id);
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,470 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.dto.EmployeeRequest;
+import com.example.Employee_manager.entity.Department;
+import com.example.Employee_manager.entity.Employee;
+import com.example.Employee_manager.event.EntityChangeEvent;
+import com.example.Employee_manager.repository.DepartmentRepository;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Imports employees from a CSV file in one pass over the input. Rows are validated and their
+// managers resolved by employee number in memory; valid rows are then inserted managers-first
+// in JDBC batches, and every rejected row is reported with its line number.
+@Service
+public class EmployeeImportService {
+
+    static final List<String> COLUMNS = List.of("name", "surname", "birthDate", "employeeNumber", "salary",
+            "role", "email", "managerEmployeeNumber", "departmentId", "departmentName");
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private Validator validator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.import.max-rows:50000}")
+    private int maxRows;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    // One parsed data row; manager is the index of a manager row from the same file, if any
+    private static final class ImportRow {
+        final int line;
+        final EmployeeRequest request;
+        final String managerEmployeeNumber;
+        Department department;
+        Long existingManagerId;
+        int manager = -1;
+        String error;
+        Long id;
+
+        ImportRow(int line, EmployeeRequest request, String managerEmployeeNumber) {
+            this.line = line;
+            this.request = request;
+            this.managerEmployeeNumber = managerEmployeeNumber;
+        }
+    }
+
+    @Transactional
+    public Map<String, Object> importCsv(Reader input) throws IOException {
+        CsvReader csv = new CsvReader(input);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        Map<String, Integer> columns = mapHeader(header);
+
+        // What is already stored, loaded once instead of looked up per row
+        Map<String, Long> idByEmployeeNumber = new HashMap<>();
+        Set<String> emails = new HashSet<>();
+        Long ceoId = null;
+        for (Object[] key : employeeRepository.findImportKeys()) {
+            idByEmployeeNumber.put((String) key[1], (Long) key[0]);
+            if (key[2] != null) {
+                emails.add(((String) key[2]).toLowerCase(Locale.ROOT));
+            }
+            String role = key[3] != null ? ((String) key[3]).toLowerCase(Locale.ROOT) : "";
+            if (ceoId == null && (role.contains("ceo") || role.contains("chief executive officer"))) {
+                ceoId = (Long) key[0];
+            }
+        }
+        Map<Long, Department> departmentsById = new HashMap<>();
+        Map<String, Department> departmentsByName = new HashMap<>();
+        for (Department department : departmentRepository.findAllWithManagers()) {
+            departmentsById.put(department.getId(), department);
+            departmentsByName.put(department.getName().toLowerCase(Locale.ROOT), department);
+        }
+
+        // Parse and validate each row as it is read
+        List<ImportRow> rows = new ArrayList<>();
+        Map<String, Integer> rowByEmployeeNumber = new HashMap<>();
+        List<String> record;
+        while ((record = csv.readRecord()) != null) {
+            if (isBlank(record)) {
+                continue;
+            }
+            if (rows.size() >= maxRows) {
+                throw new IllegalArgumentException("Import is limited to " + maxRows + " rows per file");
+            }
+            ImportRow row = parseRow(csv.getRecordLine(), record, columns, departmentsById, departmentsByName);
+            if (row.error == null) {
+                String number = row.request.getEmployeeNumber();
+                String email = row.request.getEmail();
+                if (idByEmployeeNumber.containsKey(number) || rowByEmployeeNumber.containsKey(number)) {
+                    row.error = "Employee number already exists: " + number;
+                } else if (email != null && !emails.add(email.toLowerCase(Locale.ROOT))) {
+                    row.error = "Email already exists: " + email;
+                } else {
+                    rowByEmployeeNumber.put(number, rows.size());
+                }
+            }
+            rows.add(row);
+        }
+
+        resolveManagers(rows, rowByEmployeeNumber, idByEmployeeNumber);
+        List<ImportRow> insertOrder = orderManagersFirst(rows);
+
+        // Insert in batches; the persistence context is cleared after each one to keep memory flat
+        int pending = 0;
+        for (ImportRow row : insertOrder) {
+            Employee employee = toEntity(row, rows, ceoId);
+            entityManager.persist(employee);
+            row.id = employee.getId();
+            if (++pending == batchSize) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // One bulk event for the whole file, so listeners invalidate once rather than once per row
+        if (!insertOrder.isEmpty()) {
+            List<Long> createdIds = new ArrayList<>(insertOrder.size());
+            for (ImportRow row : insertOrder) {
+                createdIds.add(row.id);
+            }
+            eventPublisher.publishEvent(EntityChangeEvent.bulk(
+                    EntityChangeEvent.EntityType.EMPLOYEE, EntityChangeEvent.Action.CREATED, createdIds));
+        }
+
+        List<Map<String, Object>> errors = new ArrayList<>();
+        for (ImportRow row : rows) {
+            if (row.error != null) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("line", row.line);
+                error.put("employeeNumber", row.request != null ? row.request.getEmployeeNumber() : null);
+                error.put("error", row.error);
+                errors.add(error);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("totalRows", rows.size());
+        result.put("imported", insertOrder.size());
+        result.put("failed", errors.size());
+        result.put("errors", errors);
+        return result;
+    }
+
+    private Map<String, Integer> mapHeader(List<String> header) {
+        Map<String, String> known = new HashMap<>();
+        for (String column : COLUMNS) {
+            known.put(column.toLowerCase(Locale.ROOT), column);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String column = known.get(header.get(i).trim().toLowerCase(Locale.ROOT));
+            if (column != null) {
+                columns.put(column, i);
+            }
+        }
+        for (String required : List.of("name", "surname", "birthDate", "employeeNumber", "role")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("Missing required column: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private ImportRow parseRow(int line, List<String> record, Map<String, Integer> columns,
+                               Map<Long, Department> departmentsById, Map<String, Department> departmentsByName) {
+        EmployeeRequest request = new EmployeeRequest();
+        request.setName(value(record, columns, "name"));
+        request.setSurname(value(record, columns, "surname"));
+        request.setEmployeeNumber(value(record, columns, "employeeNumber"));
+        request.setRole(value(record, columns, "role"));
+        request.setEmail(value(record, columns, "email"));
+        ImportRow row = new ImportRow(line, request, value(record, columns, "managerEmployeeNumber"));
+
+        try {
+            String birthDate = value(record, columns, "birthDate");
+            request.setBirthDate(birthDate != null ? LocalDate.parse(birthDate) : null);
+        } catch (DateTimeParseException e) {
+            row.error = "Birth date must be in yyyy-MM-dd format";
+            return row;
+        }
+        try {
+            String salary = value(record, columns, "salary");
+            request.setSalary(salary != null ? Double.valueOf(salary) : null);
+        } catch (NumberFormatException e) {
+            row.error = "Salary must be a number";
+            return row;
+        }
+        if (request.getSalary() == null) {
+            row.error = "Salary is mandatory";
+            return row;
+        }
+
+        // The same constraints as POST /api/employees
+        Set<ConstraintViolation<EmployeeRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            row.error = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .reduce((first, second) -> first + "; " + second)
+                    .orElse("Invalid row");
+            return row;
+        }
+
+        String departmentId = value(record, columns, "departmentId");
+        String departmentName = value(record, columns, "departmentName");
+        if (departmentId != null) {
+            try {
+                row.department = departmentsById.get(Long.valueOf(departmentId));
+            } catch (NumberFormatException e) {
+                row.error = "Department ID must be a number";
+                return row;
+            }
+            if (row.department == null) {
+                row.error = "Department not found with id: " + departmentId;
+            }
+        } else if (departmentName != null) {
+            row.department = departmentsByName.get(departmentName.toLowerCase(Locale.ROOT));
+            if (row.department == null) {
+                row.error = "Department not found with name: " + departmentName;
+            }
+        }
+        return row;
+    }
+
+    // A manager is either an existing employee or another row of the same file
+    private void resolveManagers(List<ImportRow> rows, Map<String, Integer> rowByEmployeeNumber,
+                                 Map<String, Long> idByEmployeeNumber) {
+        for (ImportRow row : rows) {
+            if (row.error != null || row.managerEmployeeNumber == null) {
+                continue;
+            }
+            if (row.managerEmployeeNumber.equals(row.request.getEmployeeNumber())) {
+                row.error = "Employee cannot be their own manager";
+            } else if (rowByEmployeeNumber.containsKey(row.managerEmployeeNumber)) {
+                row.manager = rowByEmployeeNumber.get(row.managerEmployeeNumber);
+            } else if (idByEmployeeNumber.containsKey(row.managerEmployeeNumber)) {
+                row.existingManagerId = idByEmployeeNumber.get(row.managerEmployeeNumber);
+            } else {
+                row.error = "Manager not found with employee number: " + row.managerEmployeeNumber;
+            }
+        }
+    }
+
+    // Breadth first from rows whose manager already exists, so each manager row is stored before its reports.
+    // Rows left over report to a failed row or sit in a loop of managers within the file.
+    private List<ImportRow> orderManagersFirst(List<ImportRow> rows) {
+        int[] parent = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            parent[i] = rows.get(i).manager;
+        }
+        int[] original = parent.clone();
+        OrgStructure.breakCycles(parent);
+
+        List<List<Integer>> reports = new ArrayList<>(rows.size());
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            reports.add(new ArrayList<>());
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            ImportRow row = rows.get(i);
+            if (parent[i] != original[i]) {
+                row.error = "Manager chain loops back to this employee";
+            } else if (row.error == null && parent[i] >= 0) {
+                reports.get(parent[i]).add(i);
+            } else if (row.error == null) {
+                order.add(i);
+            }
+        }
+        for (int i = 0; i < order.size(); i++) {
+            for (int report : reports.get(order.get(i))) {
+                if (rows.get(report).error == null) {
+                    order.add(report);
+                }
+            }
+        }
+
+        boolean[] ordered = new boolean[rows.size()];
+        for (int i : order) {
+            ordered[i] = true;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            ImportRow row = rows.get(i);
+            if (row.error == null && !ordered[i]) {
+                row.error = "Manager " + row.managerEmployeeNumber + " could not be imported";
+            }
+        }
+
+        List<ImportRow> insertOrder = new ArrayList<>(order.size());
+        for (int i : order) {
+            insertOrder.add(rows.get(i));
+        }
+        return insertOrder;
+    }
+
+    // Same defaults as a single create: department manager, else the CEO for manager roles.
+    // Related rows are referenced by id, so nothing has to be loaded or stay attached across batches.
+    private Employee toEntity(ImportRow row, List<ImportRow> rows, Long ceoId) {
+        EmployeeRequest request = row.request;
+        Employee employee = new Employee();
+        employee.setName(request.getName());
+        employee.setSurname(request.getSurname());
+        employee.setBirthDate(request.getBirthDate());
+        employee.setEmployeeNumber(request.getEmployeeNumber());
+        employee.setSalary(request.getSalary());
+        employee.setRole(request.getRole());
+        employee.setEmail(request.getEmail());
+        if (row.department != null) {
+            employee.setDepartment(entityManager.getReference(Department.class, row.department.getId()));
+        }
+
+        Long managerId = null;
+        if (row.manager >= 0) {
+            managerId = rows.get(row.manager).id;
+        } else if (row.existingManagerId != null) {
+            managerId = row.existingManagerId;
+        } else if (row.department != null) {
+            managerId = row.department.getManager() != null ? row.department.getManager().getId() : null;
+        } else if (EmployeeService.isManagerRole(request.getRole())) {
+            managerId = ceoId;
+        }
+        if (managerId != null) {
+            employee.setManager(entityManager.getReference(Employee.class, managerId));
+        }
+        return employee;
+    }
+
+    private String value(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private boolean isBlank(List<String> record) {
+        for (String value : record) {
+            if (!value.isBlank()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Minimal RFC 4180 reader: quoted fields may contain commas, doubled quotes and line breaks
+    static final class CsvReader {
+        private final Reader reader;
+        private int line = 1;
+        private int recordLine;
+        private int peeked = -2;
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        // Line the last record started on
+        int getRecordLine() {
+            return recordLine;
+        }
+
+        List<String> readRecord() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("Unterminated quoted field starting on line " + recordLine);
+                    }
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            read();
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c == '\r') {
+                    if (peek() == '\n') {
+                        read();
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            fields.add(field.toString());
+            // Tolerate a UTF-8 byte order mark in front of the header
+            if (recordLine == 1 && !fields.isEmpty() && fields.get(0).startsWith("\uFEFF")) {
+                fields.set(0, fields.get(0).substring(1));
+            }
+            return fields;
+        }
+
+        private int read() throws IOException {
+            int c;
+            if (peeked != -2) {
+                c = peeked;
+                peeked = -2;
+            } else {
+                c = reader.read();
+            }
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) {
+                peeked = reader.read();
+            }
+            return peeked;
+        }
+    }
+}
@@ -1,18 +1,25 @@
 package com.example.Employee_manager.service;
 
+import com.example.Employee_manager.config.CacheConfig;
 import com.example.Employee_manager.dto.EmployeeDTO;
 import com.example.Employee_manager.dto.EmployeeRequest;
 import com.example.Employee_manager.entity.Employee;
 import com.example.Employee_manager.entity.Department;
+import com.example.Employee_manager.event.EntityChangeEvent;
 import com.example.Employee_manager.repository.EmployeeRepository;
 import com.example.Employee_manager.repository.DepartmentRepository;
-import org.springframework.web.multipart.MultipartFile;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -20,6 +27,9 @@ import java.util.stream.Collectors;
 @Transactional
 public class EmployeeService {
 
+    // Keeps IN lists well below the bind parameter limits of the database
+    private static final int ID_BATCH_SIZE = 1000;
+
     @Autowired
     private EmployeeRepository employeeRepository;
 
@@ -29,6 +39,15 @@ public class EmployeeService {
     @Autowired
     private DepartmentRepository departmentRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SyncVersionService syncVersionService;
+
+    @Autowired
+    private ReportingLineService reportingLineService;
+
     // Convert Entity to DTO
     private EmployeeDTO convertToDTO(Employee employee) {
         EmployeeDTO dto = new EmployeeDTO();
@@ -42,6 +61,7 @@ public class EmployeeService {
         dto.setEmail(employee.getEmail());
         dto.setGravatarUrl(employee.getGravatarUrl());
         dto.setProfilePicturePath(employee.getProfilePicturePath());
+        dto.setProfilePictureVariants(fileUploadService.getVariantUrls(employee.getProfilePicturePath()));
 
         if (employee.getManager() != null) {
             dto.setManagerId(employee.getManager().getId());
@@ -85,7 +105,51 @@ public class EmployeeService {
                 .collect(Collectors.toList());
     }
 
+    // Convert employees that were loaded with their manager and department
+    public List<EmployeeDTO> convertToDTOs(List<Employee> employees) {
+        return employees.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    // Load employees in the order of the given ids, a bounded batch per query; unknown ids are skipped
+    @Transactional(readOnly = true)
+    public List<EmployeeDTO> getEmployeesByIds(long[] ids) {
+        Map<Long, EmployeeDTO> byId = new HashMap<>(ids.length * 2);
+        for (int from = 0; from < ids.length; from += ID_BATCH_SIZE) {
+            List<Long> batch = new ArrayList<>(Math.min(ID_BATCH_SIZE, ids.length - from));
+            for (int i = from; i < Math.min(from + ID_BATCH_SIZE, ids.length); i++) {
+                batch.add(ids[i]);
+            }
+            for (Employee employee : employeeRepository.findAllWithManagersByIdIn(batch)) {
+                byId.put(employee.getId(), convertToDTO(employee));
+            }
+        }
+
+        List<EmployeeDTO> ordered = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            EmployeeDTO dto = byId.get(id);
+            if (dto != null) {
+                ordered.add(dto);
+            }
+        }
+        return ordered;
+    }
+
+    // Whether a role counts as a manager role for manager pickers
+    public static boolean isManagerPickerRole(String role) {
+        if (role == null) {
+            return false;
+        }
+        String lowerRole = role.toLowerCase();
+        return lowerRole.contains("manager") ||
+               lowerRole.contains("lead") ||
+               lowerRole.contains("director") ||
+               lowerRole.contains("supervisor");
+    }
+
     // Get employee by ID
+    @Cacheable(cacheNames = CacheConfig.EMPLOYEES, key = "#id", sync = true)
     public EmployeeDTO getEmployeeById(Long id) {
         Employee employee = employeeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Employee not found with id: " + id));
@@ -131,7 +195,9 @@ public class EmployeeService {
         }
 
         Employee savedEmployee = employeeRepository.save(employee);
-        return convertToDTO(savedEmployee);
+        EmployeeDTO dto = convertToDTO(savedEmployee);
+        eventPublisher.publishEvent(EntityChangeEvent.created(EntityChangeEvent.EntityType.EMPLOYEE, dto.getId(), dto));
+        return dto;
     }
 
     // Update employee
@@ -145,6 +211,10 @@ public class EmployeeService {
             throw new RuntimeException("Employee number already exists: " + request.getEmployeeNumber());
         }
 
+        boolean renamed = !Objects.equals(existingEmployee.getName(), request.getName())
+                || !Objects.equals(existingEmployee.getSurname(), request.getSurname());
+        Long previousManagerId = existingEmployee.getManager() != null ? existingEmployee.getManager().getId() : null;
+
         // Update fields
         existingEmployee.setName(request.getName());
         existingEmployee.setSurname(request.getSurname());
@@ -167,12 +237,6 @@ public class EmployeeService {
         if (request.getManagerId() != null) {
             Employee manager = employeeRepository.findById(request.getManagerId())
                     .orElseThrow(() -> new RuntimeException("Manager not found with id: " + request.getManagerId()));
-
-            // Prevent self-management
-            if (request.getManagerId().equals(id)) {
-                throw new RuntimeException("Employee cannot be their own manager");
-            }
-
             existingEmployee.setManager(manager);
         } else if (request.getDepartmentId() != null) {
             // Auto-assign department manager if no manager is specified
@@ -208,8 +272,104 @@ public class EmployeeService {
             }
         }
 
+        // Only a new manager can close a loop, so edits that keep the manager skip the reporting line lock
+        Long newManagerId = existingEmployee.getManager() != null ? existingEmployee.getManager().getId() : null;
+        if (!Objects.equals(previousManagerId, newManagerId)) {
+            reportingLineService.lock();
+            if (request.getManagerId() != null) {
+                // Prevent self-management and longer loops such as A -> B -> A
+                checkNoReportingCycle(id, newManagerId);
+            } else if (newManagerId != null && wouldCreateReportingCycle(id, newManagerId)) {
+                // A manager picked automatically (department manager or CEO) may be this employee or
+                // one of their reports; leave them without a manager rather than writing a loop
+                existingEmployee.setManager(null);
+            }
+        }
+
         Employee updatedEmployee = employeeRepository.save(existingEmployee);
-        return convertToDTO(updatedEmployee);
+        EmployeeDTO dto = convertToDTO(updatedEmployee);
+        if (renamed) {
+            // Reports and managed departments show this name, so delta sync must send them again
+            long version = syncVersionService.next();
+            employeeRepository.touchReports(id, version);
+            departmentRepository.touchManagedBy(id, version);
+        }
+        eventPublisher.publishEvent(EntityChangeEvent.updated(EntityChangeEvent.EntityType.EMPLOYEE, id, dto));
+        return dto;
+    }
+
+    // Move one employee, with their whole team, under a new manager (or to the top when managerId is null)
+    public EmployeeDTO reparentEmployee(Long id, Long managerId) {
+        reportingLineService.lock();
+        Employee employee = employeeRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Employee not found with id: " + id));
+
+        Employee manager = null;
+        if (managerId != null) {
+            manager = employeeRepository.findByIdForUpdate(managerId)
+                    .orElseThrow(() -> new RuntimeException("Manager not found with id: " + managerId));
+            checkNoReportingCycle(id, managerId);
+        }
+
+        employee.setManager(manager);
+        Employee savedEmployee = employeeRepository.save(employee);
+        EmployeeDTO dto = convertToDTO(savedEmployee);
+        eventPublisher.publishEvent(EntityChangeEvent.updated(EntityChangeEvent.EntityType.EMPLOYEE, id, dto));
+        return dto;
+    }
+
+    // Reassign every direct report of a manager to another manager in one transaction and one UPDATE.
+    // Their own teams move with them, since those still point at them.
+    public Map<String, Object> moveTeam(Long managerId, Long newManagerId) {
+        if (newManagerId == null) {
+            throw new RuntimeException("New manager is required");
+        }
+        if (newManagerId.equals(managerId)) {
+            throw new RuntimeException("Team is already managed by employee with id: " + managerId);
+        }
+        reportingLineService.lock();
+        if (!employeeRepository.existsById(managerId)) {
+            throw new RuntimeException("Manager not found with id: " + managerId);
+        }
+        Employee newManager = employeeRepository.findByIdForUpdate(newManagerId)
+                .orElseThrow(() -> new RuntimeException("Manager not found with id: " + newManagerId));
+
+        // The new manager must not be inside the team that is moving
+        if (reportingLineService.getManagementChain(newManagerId).contains(managerId)) {
+            throw new RuntimeException("Cannot move a team under one of its own members");
+        }
+
+        List<Long> movedIds = employeeRepository.findIdsByManagerIdForUpdate(managerId);
+        int moved = 0;
+        if (!movedIds.isEmpty()) {
+            moved = employeeRepository.reassignReports(managerId, newManager, syncVersionService.next());
+            // One event for the whole team, as the move was one statement
+            eventPublisher.publishEvent(EntityChangeEvent.bulk(
+                    EntityChangeEvent.EntityType.EMPLOYEE, EntityChangeEvent.Action.UPDATED, movedIds));
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("fromManagerId", managerId);
+        result.put("toManagerId", newManagerId);
+        result.put("movedCount", moved);
+        result.put("movedEmployeeIds", movedIds);
+        return result;
+    }
+
+    // Reject a manager that is the employee or reports to them, directly or indirectly
+    private void checkNoReportingCycle(Long employeeId, Long managerId) {
+        if (managerId.equals(employeeId)) {
+            throw new RuntimeException("Employee cannot be their own manager");
+        }
+        if (wouldCreateReportingCycle(employeeId, managerId)) {
+            throw new RuntimeException("Employee cannot be managed by someone who reports to them");
+        }
+    }
+
+    // Walks the current rows rather than the cached structure, which lags behind other commits;
+    // callers hold the reporting line lock
+    private boolean wouldCreateReportingCycle(Long employeeId, Long managerId) {
+        return reportingLineService.wouldCreateCycle(employeeId, managerId);
     }
 
     // Delete employee
@@ -224,6 +384,16 @@ public class EmployeeService {
         }
 
         employeeRepository.delete(employee);
+        eventPublisher.publishEvent(EntityChangeEvent.deleted(EntityChangeEvent.EntityType.EMPLOYEE, id));
+
+        // Release the picture so the blob sweeper can reclaim it
+        if (employee.getProfilePicturePath() != null) {
+            try {
+                fileUploadService.deleteProfilePicture(employee.getProfilePicturePath());
+            } catch (java.io.IOException e) {
+                throw new RuntimeException("Could not delete profile picture: " + e.getMessage(), e);
+            }
+        }
     }
 
     // Search employees by name or surname
@@ -308,22 +478,16 @@ public class EmployeeService {
         return employee != null ? convertToDTO(employee) : null;
     }
 
-    // Upload profile picture
-    public EmployeeDTO uploadProfilePicture(Long id, MultipartFile file) throws Exception {
-        Employee employee = employeeRepository.findById(id)
+    // Swap in a processed profile picture and return the file it replaced
+    public String applyProfilePicture(Long id, String filename) {
+        Employee employee = employeeRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Employee not found with id: " + id));
 
-        // Delete old profile picture if exists
-        if (employee.getProfilePicturePath() != null) {
-            fileUploadService.deleteProfilePicture(employee.getProfilePicturePath());
-        }
-
-        // Upload new profile picture
-        String filename = fileUploadService.uploadProfilePicture(file, id);
+        String previousFilename = employee.getProfilePicturePath();
         employee.setProfilePicturePath(filename);
-
         Employee savedEmployee = employeeRepository.save(employee);
-        return convertToDTO(savedEmployee);
+        eventPublisher.publishEvent(EntityChangeEvent.updated(EntityChangeEvent.EntityType.EMPLOYEE, id, convertToDTO(savedEmployee)));
+        return previousFilename;
     }
 
     // Delete profile picture
@@ -335,7 +499,9 @@ public class EmployeeService {
             fileUploadService.deleteProfilePicture(employee.getProfilePicturePath());
             employee.setProfilePicturePath(null);
             Employee savedEmployee = employeeRepository.save(employee);
-            return convertToDTO(savedEmployee);
+            EmployeeDTO dto = convertToDTO(savedEmployee);
+            eventPublisher.publishEvent(EntityChangeEvent.updated(EntityChangeEvent.EntityType.EMPLOYEE, id, dto));
+            return dto;
         }
 
         return convertToDTO(employee);
@@ -368,6 +534,7 @@ public class EmployeeService {
     }
 
     // Get all unique roles
+    @Cacheable(cacheNames = CacheConfig.ROLES, key = "'" + CacheConfig.ALL + "'", sync = true)
     public List<String> getAllRoles() {
         return employeeRepository.findAll()
                 .stream()
@@ -440,13 +607,9 @@ public class EmployeeService {
     // Get all managers (employees with manager roles)
     public List<EmployeeDTO> getAllManagers() {
         // Get employees with manager-related roles
-        return employeeRepository.findAll()
+        // One query with manager and department joined, so the picker costs a single statement
+        return employeeRepository.findManagerPickerCandidates()
                 .stream()
-                .filter(emp -> emp.getRole() != null && 
-                        (emp.getRole().toLowerCase().contains("manager") || 
-                         emp.getRole().toLowerCase().contains("lead") ||
-                         emp.getRole().toLowerCase().contains("director") ||
-                         emp.getRole().toLowerCase().contains("supervisor")))
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
@@ -458,7 +621,7 @@ public class EmployeeService {
     }
 
     // Check if a role is a manager role
-    private boolean isManagerRole(String role) {
+    static boolean isManagerRole(String role) {
         if (role == null) return false;
         String lowerRole = role.toLowerCase();
         return lowerRole.contains("manager") || 
@@ -471,49 +634,7 @@ public class EmployeeService {
 
     // Find the CEO in the system
     private Employee findCEO() {
-        return employeeRepository.findAll()
-                .stream()
-                .filter(emp -> emp.getRole() != null && 
-                        (emp.getRole().toLowerCase().contains("ceo") || 
-                         emp.getRole().toLowerCase().contains("chief executive officer")))
-                .findFirst()
-                .orElse(null);
-    }
-
-    // Ensure all managers have CEO as their manager and are assigned to departments
-    public void ensureManagerAssignments() {
-        Employee ceo = findCEO();
-        if (ceo == null) {
-            return; // No CEO found, cannot assign managers
-        }
-
-        List<Employee> allEmployees = employeeRepository.findAll();
-        
-        for (Employee employee : allEmployees) {
-            boolean needsUpdate = false;
-            
-            // Check if employee has a manager role
-            if (isManagerRole(employee.getRole())) {
-                // Ensure CEO is assigned as manager
-                if (employee.getManager() == null || !Long.valueOf(employee.getManager().getId()).equals(ceo.getId())) {
-                    employee.setManager(ceo);
-                    needsUpdate = true;
-                }
-                
-                // If this manager is assigned to a department, ensure they are in that department
-                if (employee.getDepartment() == null) {
-                    // Check if this employee is managing a department
-                    Optional<Department> managedDepartment = departmentRepository.findByManagerId(employee.getId());
-                    if (managedDepartment.isPresent()) {
-                        employee.setDepartment(managedDepartment.get());
-                        needsUpdate = true;
-                    }
-                }
-            }
-            
-            if (needsUpdate) {
-                employeeRepository.save(employee);
-            }
-        }
+        List<Employee> candidates = employeeRepository.findCeoCandidates(PageRequest.of(0, 1));
+        return candidates.isEmpty() ? null : candidates.get(0);
     }
 }
\ No newline at end of file
@@ -1,23 +1,85 @@
 package com.example.Employee_manager.service;
 
+import com.example.Employee_manager.entity.ImageBlob;
+import com.example.Employee_manager.repository.ImageBlobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 @Service
 public class FileUploadService {
 
+    private static final Logger log = LoggerFactory.getLogger(FileUploadService.class);
+
+    // <sha-256 hex>.<ext>, as written by the blob store
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("^[0-9a-f]{64}\\.[a-z0-9]{1,9}$");
+
+    private static final long MAX_UPLOAD_BYTES = 5 * 1024 * 1024;
+
+    // Enough leading bytes to recognise every supported format
+    private static final int SNIFF_LENGTH = 12;
+
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("^\\.[a-z0-9]{1,9}$");
+
     @Value("${app.upload.dir:uploads/profile-pictures}")
     private String uploadDir;
 
-    public String uploadProfilePicture(MultipartFile file, Long employeeId) throws IOException {
+    @Value("${app.upload.staging-dir:uploads/staging}")
+    private String stagingDir;
+
+    @Value("${app.upload.sweeper.grace-minutes:60}")
+    private long sweeperGraceMinutes;
+
+    @Autowired
+    private ImageProcessingService imageProcessingService;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    private final Object[] blobLocks = new Object[64];
+
+    // Whether the pre-sized variants of a picture exist, by base name (the content hash for blobs),
+    // so DTO conversion checks the disk once per picture instead of once per row
+    private final Map<String, Boolean> hasVariants = new ConcurrentHashMap<>();
+
+    public FileUploadService() {
+        for (int i = 0; i < blobLocks.length; i++) {
+            blobLocks[i] = new Object();
+        }
+    }
+
+    // An upload written to the staging area, hashed while it was copied
+    public record StagedUpload(Path path, String hash, long size) {}
+
+    // Validate an upload and park it in the staging area until a worker picks it up
+    public StagedUpload stageUpload(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
         }
@@ -29,38 +91,295 @@ public class FileUploadService {
         }
 
         // Validate file size (max 5MB)
-        if (file.getSize() > 5 * 1024 * 1024) {
+        if (file.getSize() > MAX_UPLOAD_BYTES) {
             throw new IllegalArgumentException("File size must be less than 5MB");
         }
 
+        try (InputStream inputStream = file.getInputStream()) {
+            return stageStream(inputStream, file.getSize());
+        }
+    }
+
+    // Read an upload body exactly once: sniff the format, hash and size-check it while it is written
+    public StagedUpload stageStream(InputStream inputStream, long declaredLength) throws IOException {
+        if (declaredLength > MAX_UPLOAD_BYTES) {
+            throw new IllegalArgumentException("File size must be less than 5MB");
+        }
+
+        // Decide from the magic bytes, not the client's content type or file name
+        byte[] header = inputStream.readNBytes(SNIFF_LENGTH);
+        if (header.length == 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        String extension = sniffImageExtension(header);
+        if (extension == null) {
+            throw new IllegalArgumentException("File must be a JPEG, PNG, GIF or BMP image");
+        }
+
+        Path stagingPath = Paths.get(stagingDir);
+        if (!Files.exists(stagingPath)) {
+            Files.createDirectories(stagingPath);
+        }
+
+        MessageDigest digest = newSha256();
+        Path stagedFile = stagingPath.resolve(UUID.randomUUID() + extension);
+        long size = 0;
+        try (OutputStream outputStream = Files.newOutputStream(stagedFile, StandardOpenOption.CREATE_NEW)) {
+            digest.update(header);
+            outputStream.write(header);
+            size = header.length;
+
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                size += read;
+                if (size > MAX_UPLOAD_BYTES) {
+                    throw new IllegalArgumentException("File size must be less than 5MB");
+                }
+                digest.update(buffer, 0, read);
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(stagedFile);
+            throw e;
+        }
+
+        // Reject decompression bombs; only the image header is read back
+        try (InputStream stagedInput = Files.newInputStream(stagedFile)) {
+            imageProcessingService.validateDimensions(stagedInput);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(stagedFile);
+            throw e;
+        }
+
+        return new StagedUpload(stagedFile, HexFormat.of().formatHex(digest.digest()), size);
+    }
+
+    // Move a staged upload into the content-addressed store and generate its variants.
+    // Identical pictures share one blob, so only the first upload of an image is written.
+    public String storeStagedUpload(Path stagedFile, String knownHash) throws IOException {
         // Create upload directory if it doesn't exist
         Path uploadPath = Paths.get(uploadDir);
         if (!Files.exists(uploadPath)) {
             Files.createDirectories(uploadPath);
         }
 
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".") 
-            ? originalFilename.substring(originalFilename.lastIndexOf("."))
-            : ".jpg";
-        
-        String filename = "employee_" + employeeId + "_" + UUID.randomUUID().toString() + extension;
+        // Jobs staged by older versions carry no hash yet
+        String hash = knownHash != null ? knownHash : sha256(stagedFile);
+        String extension = extensionOf(stagedFile.getFileName().toString());
+        long size = Files.size(stagedFile);
 
-        // Save file
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        synchronized (lockFor(hash)) {
+            if (imageBlobRepository.acquire(hash) == 1) {
+                discardStagedUpload(stagedFile);
+                return imageBlobRepository.findById(hash)
+                        .map(ImageBlob::getFilename)
+                        .orElseThrow(() -> new IllegalStateException("Image blob disappeared: " + hash));
+            }
+
+            String filename = hash + extension;
+            Path filePath = uploadPath.resolve(filename);
+            moveAtomically(stagedFile, filePath);
+
+            // Pre-size the avatar variants so list views never download the original
+            try {
+                imageProcessingService.createVariants(filePath, hash);
+            } catch (IOException | RuntimeException e) {
+                deleteBlobFiles(filename);
+                throw e;
+            }
+            hasVariants.put(hash, true);
+
+            // The files exist before the row does, so a blob that others can acquire is always complete;
+            // the files must then go if the row is never committed
+            try {
+                imageBlobRepository.save(new ImageBlob(hash, extension, size));
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent upload stored the same picture and committed after our acquire missed it;
+                // its files are identical, so share its blob
+                if (imageBlobRepository.acquire(hash) == 1) {
+                    return filename;
+                }
+                deleteBlobFiles(filename);
+                throw e;
+            } catch (RuntimeException e) {
+                deleteBlobFiles(filename);
+                throw e;
+            }
+            deleteFilesOnRollback(hash, filename);
+            return filename;
+        }
+    }
+
+    // When called inside a transaction, the row above commits with it; on rollback the files it
+    // describes would be invisible to the sweeper, so delete them unless the blob was stored again since
+    private void deleteFilesOnRollback(String hash, String filename) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                synchronized (lockFor(hash)) {
+                    try {
+                        if (!imageBlobRepository.existsById(hash)) {
+                            deleteBlobFiles(filename);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        log.warn("Could not delete image blob {} after rollback", filename, e);
+                    }
+                }
+            }
+        });
+    }
 
-        return filename;
+    public void discardStagedUpload(Path stagedFile) throws IOException {
+        if (stagedFile != null) {
+            Files.deleteIfExists(stagedFile);
+        }
     }
 
     public void deleteProfilePicture(String filename) throws IOException {
         if (filename != null && !filename.trim().isEmpty()) {
-            Path filePath = Paths.get(uploadDir).resolve(filename);
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
+            if (CONTENT_ADDRESSED_NAME.matcher(filename).matches()) {
+                // Shared blob: drop the reference and let the sweeper remove it
+                imageBlobRepository.release(baseName(filename), LocalDateTime.now());
+            } else {
+                // Pictures stored before the blob store are owned by a single employee
+                deleteBlobFiles(filename);
+            }
+        }
+    }
+
+    // Remove blobs that nothing has referenced for the whole grace period
+    @Scheduled(fixedDelayString = "${app.upload.sweeper.interval-ms:3600000}",
+               initialDelayString = "${app.upload.sweeper.interval-ms:3600000}")
+    public void sweepUnreferencedBlobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(sweeperGraceMinutes);
+        for (ImageBlob blob : imageBlobRepository.findUnreferencedSince(cutoff)) {
+            synchronized (lockFor(blob.getHash())) {
+                if (imageBlobRepository.deleteIfUnreferenced(blob.getHash()) == 1) {
+                    try {
+                        deleteBlobFiles(blob.getFilename());
+                    } catch (IOException e) {
+                        log.warn("Could not delete unreferenced image blob {}", blob.getFilename(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    // Get the URLs of the pre-sized variants, keyed by pixel size
+    public Map<Integer, String> getVariantUrls(String filename) {
+        if (filename == null || filename.trim().isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // Pictures uploaded before variants existed only have the original
+        String baseName = baseName(filename);
+        boolean variants = hasVariants.computeIfAbsent(baseName, name -> Files.exists(Paths.get(uploadDir)
+                .resolve(ImageProcessingService.variantFilename(name, ImageProcessingService.VARIANT_SIZES[0]))));
+        if (!variants) {
+            return Collections.emptyMap();
+        }
+
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        for (int size : ImageProcessingService.VARIANT_SIZES) {
+            urls.put(size, "/uploads/profile-pictures/" + ImageProcessingService.variantFilename(baseName, size));
+        }
+        return urls;
+    }
+
+    private void deleteBlobFiles(String filename) throws IOException {
+        Path uploadPath = Paths.get(uploadDir);
+        Files.deleteIfExists(uploadPath.resolve(filename));
+        for (int size : ImageProcessingService.VARIANT_SIZES) {
+            Files.deleteIfExists(uploadPath.resolve(ImageProcessingService.variantFilename(baseName(filename), size)));
+        }
+        hasVariants.remove(baseName(filename));
+    }
+
+    private void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Staging and upload directories are on different file stores: copy to a temp file next to the target first
+            Path temp = target.resolveSibling(".tmp-" + UUID.randomUUID());
+            Files.copy(source, temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(source);
+        }
+    }
+
+    private String sha256(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
             }
         }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Map the leading magic bytes to one of the formats ImageIO can decode
+    private String sniffImageExtension(byte[] header) {
+        if (startsWith(header, 0xFF, 0xD8, 0xFF)) {
+            return ".jpg";
+        }
+        if (startsWith(header, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return ".png";
+        }
+        if (startsWith(header, 'G', 'I', 'F', '8')) {
+            return ".gif";
+        }
+        if (startsWith(header, 'B', 'M')) {
+            return ".bmp";
+        }
+        return null;
+    }
+
+    private boolean startsWith(byte[] data, int... prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String extensionOf(String originalFilename) {
+        if (originalFilename != null && originalFilename.contains(".")) {
+            String extension = originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase();
+            if (SAFE_EXTENSION.matcher(extension).matches()) {
+                return extension;
+            }
+        }
+        return ".jpg";
+    }
+
+    private Object lockFor(String hash) {
+        return blobLocks[Math.floorMod(hash.hashCode(), blobLocks.length)];
+    }
+
+    private String baseName(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot > 0 ? filename.substring(0, dot) : filename;
     }
 }
 
@@ -1,10 +1,20 @@
 package com.example.Employee_manager.service;
 
 import com.example.Employee_manager.dto.EmployeeDTO;
+import com.example.Employee_manager.dto.EmployeePairRequest;
+import com.example.Employee_manager.entity.Employee;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class HierarchyService {
@@ -12,217 +22,450 @@ public class HierarchyService {
     @Autowired
     private EmployeeService employeeService;
 
-    public static class HierarchyNode {
-        private EmployeeDTO employee;
-        private List<HierarchyNode> children;
-        private int level;
-
-        public HierarchyNode(EmployeeDTO employee, int level) {
-            this.employee = employee;
-            this.children = new ArrayList<>();
-            this.level = level;
-        }
-
-        // Getters and setters
-        public EmployeeDTO getEmployee() { return employee; }
-        public void setEmployee(EmployeeDTO employee) { this.employee = employee; }
-        public List<HierarchyNode> getChildren() { return children; }
-        public void setChildren(List<HierarchyNode> children) { this.children = children; }
-        public int getLevel() { return level; }
-        public void setLevel(int level) { this.level = level; }
-        
+    @Autowired
+    private OrgStructureService orgStructureService;
+
+    @Autowired
+    private FileUploadService fileUploadService;
+
+    @Value("${app.hierarchy.max-pairs-per-batch:10000}")
+    private int maxPairsPerBatch;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // The tree's JSON, the statistics and their JSON for one data version, derived from the shared
+    // OrgStructure of that version without another read. Built once, then shared by all readers
+    // without locking; a newer version replaces the whole snapshot. The tree is kept only as bytes,
+    // since its nodes hold mutable employee DTOs, and the statistics map and its values are immutable.
+    public record HierarchySnapshot(String version,
+                                    Map<String, Object> statistics,
+                                    byte[] treeJson,
+                                    byte[] statisticsJson) {}
+
+    private final AtomicReference<HierarchySnapshot> snapshot = new AtomicReference<>();
+
+    private final Object rebuildLock = new Object();
+
+    // One employee of the tree with their direct reports; built from the reports up, so it never changes
+    public record HierarchyNode(EmployeeDTO employee, List<HierarchyNode> children, int level) {
+
+        public HierarchyNode {
+            children = List.copyOf(children);
+        }
+
         // Backward compatibility - map employee to user-like structure
         public EmployeeDTO getUser() { return employee; }
-        public void setUser(EmployeeDTO employee) { this.employee = employee; }
     }
 
-    public List<HierarchyNode> buildHierarchyTree() {
-        // Get all employees
-        List<EmployeeDTO> allEmployees = employeeService.getAllEmployees();
-        Map<Long, HierarchyNode> nodeMap = new HashMap<>();
-        List<HierarchyNode> structuredNodes = new ArrayList<>();
+    // Current snapshot, rebuilt only when employee or department data has changed since it was taken
+    public HierarchySnapshot getSnapshot() {
+        OrgStructure structure = orgStructureService.getStructure();
+        HierarchySnapshot current = snapshot.get();
+        if (current != null && current.version().equals(structure.version())) {
+            return current;
+        }
 
-        // Create nodes for all employees
-        for (EmployeeDTO employee : allEmployees) {
-            HierarchyNode node = new HierarchyNode(employee, 0);
-            nodeMap.put(employee.getId(), node);
+        // One rebuild per version; concurrent readers wait for it instead of repeating it.
+        // Rebuilds run one at a time and each takes the structure again here, so the installed
+        // snapshot only moves forward, even for a caller that got its structure before a newer rebuild.
+        synchronized (rebuildLock) {
+            OrgStructure latest = orgStructureService.getStructure();
+            current = snapshot.get();
+            if (current != null && current.version().equals(latest.version())) {
+                return current;
+            }
+            HierarchySnapshot rebuilt = createSnapshot(latest);
+            snapshot.set(rebuilt);
+            return rebuilt;
         }
+    }
 
-        // Separate employees by role
-        List<EmployeeDTO> ceos = new ArrayList<>();
-        List<EmployeeDTO> managers = new ArrayList<>();
-        List<EmployeeDTO> employees = new ArrayList<>();
+    private HierarchySnapshot createSnapshot(OrgStructure structure) {
+        Map<String, Object> statistics = statisticsOf(structure);
+        try {
+            return new HierarchySnapshot(structure.version(), statistics,
+                    objectMapper.writeValueAsBytes(treeOf(structure)), objectMapper.writeValueAsBytes(statistics));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize hierarchy snapshot", e);
+        }
+    }
 
-        for (EmployeeDTO employee : allEmployees) {
-            String role = employee.getRole() != null ? employee.getRole().toLowerCase() : "";
-            if (role.contains("ceo") || role.contains("chief executive officer") || role.contains("admin")) {
-                ceos.add(employee);
-            } else if (role.contains("manager")) {
-                managers.add(employee);
-            } else {
-                employees.add(employee);
-            }
+    // The structure as a tree of employee DTOs. Employees without a manager come first, then those
+    // whose manager is unknown or who were cut out of a loop; reports keep the structure's order.
+    private List<HierarchyNode> treeOf(OrgStructure structure) {
+        int size = structure.size();
+        List<EmployeeDTO> employees = new ArrayList<>(size);
+        int[] parent = new int[size];
+        for (int node = 0; node < size; node++) {
+            employees.add(toEmployeeDTO(structure, node));
+            parent[node] = structure.parent(node);
         }
+        return assemble(employees, parent, new int[size]);
+    }
 
-        // Build structured hierarchy: CEO -> Managers -> Employees
-        
-        // Level 0: CEO (only one CEO expected)
-        if (!ceos.isEmpty()) {
-            EmployeeDTO ceo = ceos.get(0); // Take the first CEO
-            HierarchyNode ceoNode = nodeMap.get(ceo.getId());
-            ceoNode.setLevel(0);
-            structuredNodes.add(ceoNode);
-
-            // Level 1: All Managers
-            for (EmployeeDTO manager : managers) {
-                HierarchyNode managerNode = nodeMap.get(manager.getId());
-                managerNode.setLevel(1);
-                ceoNode.getChildren().add(managerNode);
-            }
+    // The same DTO EmployeeService builds, from the structure's row
+    private EmployeeDTO toEmployeeDTO(OrgStructure structure, int node) {
+        Object[] row = structure.row(node);
+        String email = (String) row[OrgStructure.EMAIL];
+        String picture = (String) row[OrgStructure.PICTURE];
+
+        EmployeeDTO dto = new EmployeeDTO();
+        dto.setId((Long) row[OrgStructure.ID]);
+        dto.setName((String) row[OrgStructure.NAME]);
+        dto.setSurname((String) row[OrgStructure.SURNAME]);
+        dto.setBirthDate((LocalDate) row[OrgStructure.BIRTH_DATE]);
+        dto.setEmployeeNumber((String) row[OrgStructure.EMPLOYEE_NUMBER]);
+        dto.setSalary((Double) row[OrgStructure.SALARY]);
+        dto.setRole((String) row[OrgStructure.ROLE]);
+        dto.setEmail(email);
+        dto.setGravatarUrl(Employee.avatarUrl(email, picture));
+        dto.setProfilePicturePath(picture);
+        dto.setProfilePictureVariants(fileUploadService.getVariantUrls(picture));
 
-            // Level 2: All Employees under their respective managers
-            for (EmployeeDTO employee : employees) {
-                HierarchyNode employeeNode = nodeMap.get(employee.getId());
-                employeeNode.setLevel(2);
-                
-                // Find the employee's manager
-                if (employee.getManagerId() != null) {
-                    // Find manager node by manager ID
-                    HierarchyNode managerNode = findManagerNodeById(ceoNode.getChildren(), employee.getManagerId());
-                    if (managerNode != null) {
-                        managerNode.getChildren().add(employeeNode);
-                    } else {
-                        // If manager not found, add to first manager as fallback
-                        if (!ceoNode.getChildren().isEmpty()) {
-                            ceoNode.getChildren().get(0).getChildren().add(employeeNode);
-                        }
-                    }
-                } else {
-                    // If no manager assigned, add to first manager as fallback
-                    if (!ceoNode.getChildren().isEmpty()) {
-                        ceoNode.getChildren().get(0).getChildren().add(employeeNode);
-                    }
+        // Looked up by id, so an employee cut out of a loop still shows the manager on record
+        Long managerId = (Long) row[OrgStructure.MANAGER_ID];
+        dto.setManagerId(managerId);
+        int manager = managerId != null ? structure.indexOf(managerId) : OrgStructure.NONE;
+        if (manager != OrgStructure.NONE) {
+            Object[] managerRow = structure.row(manager);
+            dto.setManagerName(managerRow[OrgStructure.NAME] + " " + managerRow[OrgStructure.SURNAME]);
+        }
+
+        dto.setDepartmentId((Long) row[OrgStructure.DEPARTMENT_ID]);
+        dto.setDepartmentName((String) row[OrgStructure.DEPARTMENT]);
+        return dto;
+    }
+
+    // The statistics of getHierarchyStatistics(List, HierarchyTree), read off the structure
+    private Map<String, Object> statisticsOf(OrgStructure structure) {
+        int employeesWithManagers = 0;
+        int detached = 0;
+        int ceoCount = 0;
+        int managerCount = 0;
+        int maxDepth = 0;
+        Map<Integer, Integer> levelCounts = new HashMap<>();
+        for (int node = 0; node < structure.size(); node++) {
+            Object[] row = structure.row(node);
+            if (row[OrgStructure.MANAGER_ID] != null) {
+                employeesWithManagers++;
+                if (structure.parent(node) == OrgStructure.NONE) {
+                    detached++;
                 }
             }
-        } else {
-            // No CEO found, create a virtual CEO or use managers as root
-            for (EmployeeDTO manager : managers) {
-                HierarchyNode managerNode = nodeMap.get(manager.getId());
-                managerNode.setLevel(0);
-                structuredNodes.add(managerNode);
-                
-                // Add employees under this manager
-                for (EmployeeDTO employee : employees) {
-                    if (employee.getManagerId() != null && employee.getManagerId().equals(manager.getId())) {
-                        HierarchyNode employeeNode = nodeMap.get(employee.getId());
-                        employeeNode.setLevel(1);
-                        managerNode.getChildren().add(employeeNode);
-                    }
-                }
+            String role = row[OrgStructure.ROLE] != null ? ((String) row[OrgStructure.ROLE]).toLowerCase() : "";
+            if (isCeoRole(role)) {
+                ceoCount++;
+            }
+            if (role.contains("manager")) {
+                managerCount++;
             }
+            levelCounts.merge(structure.level(node), 1, Integer::sum);
+            maxDepth = Math.max(maxDepth, structure.level(node));
         }
+        // A detached employee either has an unknown manager or was cut out of a loop
+        return statistics(structure.size(), employeesWithManagers, ceoCount, managerCount, maxDepth,
+                Map.copyOf(levelCounts), structure.rootCount(), detached - structure.brokenCycleCount(),
+                structure.brokenCycleCount());
+    }
+
+    // A tree built from one employee list, with the level statistics gathered while building it
+    public record HierarchyTree(List<HierarchyNode> roots,
+                                int maxDepth,
+                                Map<Integer, Integer> levelCounts,
+                                int orphanCount,
+                                int brokenCycleCount) {}
 
-        return structuredNodes;
+    // Build the tree from an already loaded employee list
+    public List<HierarchyNode> buildHierarchyTree(List<EmployeeDTO> allEmployees) {
+        return buildTree(allEmployees).roots();
     }
 
-    // Helper method to find manager node by ID
-    private HierarchyNode findManagerNodeById(List<HierarchyNode> managerNodes, Long managerId) {
-        for (HierarchyNode managerNode : managerNodes) {
-            if (managerNode.getEmployee().getId().equals(managerId)) {
-                return managerNode;
+    // Follow managerId to any depth in linear time. Employees without a manager are roots; employees
+    // whose manager is not in the list (orphans) and loops of managers reporting to each other
+    // become extra roots after them, so nobody is dropped or attached to an unrelated manager.
+    public HierarchyTree buildTree(List<EmployeeDTO> allEmployees) {
+        int size = allEmployees.size();
+        Map<Long, Integer> indexById = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            indexById.put(allEmployees.get(i).getId(), i);
+        }
+
+        int[] parent = new int[size];
+        int orphanCount = 0;
+        for (int i = 0; i < size; i++) {
+            Long managerId = allEmployees.get(i).getManagerId();
+            Integer manager = managerId != null ? indexById.get(managerId) : null;
+            if (managerId != null && (manager == null || manager == i)) {
+                orphanCount++;
             }
+            parent[i] = manager != null && manager != i ? manager : OrgStructure.NONE;
+        }
+        int brokenCycleCount = OrgStructure.breakCycles(parent);
+
+        int[] level = new int[size];
+        List<HierarchyNode> roots = assemble(allEmployees, parent, level);
+
+        Map<Integer, Integer> levelCounts = new HashMap<>();
+        int maxDepth = 0;
+        for (int l : level) {
+            levelCounts.merge(l, 1, Integer::sum);
+            maxDepth = Math.max(maxDepth, l);
         }
-        return null;
+        return new HierarchyTree(roots, maxDepth, Map.copyOf(levelCounts), orphanCount, brokenCycleCount);
     }
 
+    // Link employees under their parent (a loop-free index array, NONE for a root) and fill in their
+    // levels. Employees without a manager are the first roots, those detached from theirs follow;
+    // reports keep the order of the list. Nodes are created from the deepest level up, so each one
+    // is complete and immutable when made.
+    private static List<HierarchyNode> assemble(List<EmployeeDTO> employees, int[] parent, int[] level) {
+        int size = employees.size();
 
-    public List<EmployeeDTO> getHierarchyPath(Long employeeId) {
-        List<EmployeeDTO> path = new ArrayList<>();
-        EmployeeDTO employee = employeeService.getEmployeeById(employeeId);
-        
-        while (employee != null) {
-            path.add(0, employee); // Add to beginning to maintain hierarchy order
-            if (employee.getManagerId() != null) {
-                employee = employeeService.getEmployeeById(employee.getManagerId());
-            } else {
-                employee = null;
+        // Reports of each employee as ranges of one array
+        int[] childStart = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            if (parent[i] != OrgStructure.NONE) {
+                childStart[parent[i] + 1]++;
             }
         }
-        
-        return path;
+        for (int i = 0; i < size; i++) {
+            childStart[i + 1] += childStart[i];
+        }
+        int[] fill = Arrays.copyOf(childStart, size);
+        int[] children = new int[childStart[size]];
+        int[] order = new int[size];
+        int queued = 0;
+        for (int i = 0; i < size; i++) {
+            if (parent[i] != OrgStructure.NONE) {
+                children[fill[parent[i]]++] = i;
+            } else if (employees.get(i).getManagerId() == null) {
+                order[queued++] = i;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (parent[i] == OrgStructure.NONE && employees.get(i).getManagerId() != null) {
+                order[queued++] = i;
+            }
+        }
+        int rootCount = queued;
+
+        // Breadth first from the roots: managers before their reports
+        for (int head = 0; head < queued; head++) {
+            int node = order[head];
+            for (int c = childStart[node]; c < childStart[node + 1]; c++) {
+                level[children[c]] = level[node] + 1;
+                order[queued++] = children[c];
+            }
+        }
+
+        HierarchyNode[] nodes = new HierarchyNode[size];
+        for (int position = queued - 1; position >= 0; position--) {
+            int node = order[position];
+            List<HierarchyNode> reports = new ArrayList<>(childStart[node + 1] - childStart[node]);
+            for (int c = childStart[node]; c < childStart[node + 1]; c++) {
+                reports.add(nodes[children[c]]);
+            }
+            nodes[node] = new HierarchyNode(employees.get(node), reports, level[node]);
+        }
+
+        List<HierarchyNode> roots = new ArrayList<>(rootCount);
+        for (int i = 0; i < rootCount; i++) {
+            roots.add(nodes[order[i]]);
+        }
+        return List.copyOf(roots);
     }
 
+    // Chain of managers from the top of the chart down to the employee, read from the
+    // in-memory structure and loaded in one batch instead of one query per level
+    public List<EmployeeDTO> getHierarchyPath(Long employeeId) {
+        OrgStructure structure = orgStructureService.getStructure();
+        int node = orgStructureService.requireNode(structure, employeeId);
+        return employeeService.getEmployeesByIds(structure.pathIds(node));
+    }
+
+    // Direct and indirect reports in pre-order, walked iteratively; an unknown manager has none
     public List<EmployeeDTO> getAllSubordinates(Long managerId) {
-        List<EmployeeDTO> allSubordinates = new ArrayList<>();
-        List<EmployeeDTO> directSubordinates = employeeService.getSubordinates(managerId);
-        
-        for (EmployeeDTO subordinate : directSubordinates) {
-            allSubordinates.add(subordinate);
-            allSubordinates.addAll(getAllSubordinates(subordinate.getId()));
+        OrgStructure structure = orgStructureService.getStructure();
+        int node = structure.indexOf(managerId);
+        if (node == OrgStructure.NONE) {
+            return new ArrayList<>();
         }
-        
-        return allSubordinates;
+        return employeeService.getEmployeesByIds(structure.descendantIds(node));
     }
 
-    public Map<String, Object> getHierarchyStatistics() {
-        List<EmployeeDTO> allEmployees = employeeService.getAllEmployees();
-        
-        int totalEmployees = allEmployees.size();
-        int employeesWithManagers = (int) allEmployees.stream()
-                .filter(employee -> employee.getManagerId() != null)
-                .count();
-        int employeesWithoutManagers = totalEmployees - employeesWithManagers;
-        
-        // Count employees by role
-        int ceoCount = (int) allEmployees.stream().filter(emp -> 
-            emp.getRole() != null && (emp.getRole().toLowerCase().contains("ceo") || 
-            emp.getRole().toLowerCase().contains("chief executive officer"))).count();
-        int managerCount = (int) allEmployees.stream().filter(emp -> 
-            emp.getRole() != null && emp.getRole().toLowerCase().contains("manager")).count();
-        int otherCount = totalEmployees - ceoCount - managerCount;
-        
-        // Find the deepest level
-        List<HierarchyNode> rootNodes = buildHierarchyTree();
-        int maxDepth = 0;
-        for (HierarchyNode rootNode : rootNodes) {
-            maxDepth = Math.max(maxDepth, getMaxDepth(rootNode));
+    public void requireEmployee(Long employeeId) {
+        orgStructureService.requireNode(orgStructureService.getStructure(), employeeId);
+    }
+
+    // Stream a manager's whole team as CSV, one row per employee as the walk reaches it
+    public void exportSubtree(Long managerId, Writer writer) throws IOException {
+        OrgStructure structure = orgStructureService.getStructure();
+        int root = orgStructureService.requireNode(structure, managerId);
+
+        writer.write("id,name,surname,role,email,department,managerId,level\n");
+        try {
+            structure.walk(root, (node, depth) -> {
+                Object[] row = structure.row(node);
+                int parent = structure.parent(node);
+                try {
+                    writer.write(row[OrgStructure.ID] + ","
+                            + csv(row[OrgStructure.NAME]) + ","
+                            + csv(row[OrgStructure.SURNAME]) + ","
+                            + csv(row[OrgStructure.ROLE]) + ","
+                            + csv(row[OrgStructure.EMAIL]) + ","
+                            + csv(row[OrgStructure.DEPARTMENT]) + ","
+                            + (parent != OrgStructure.NONE ? structure.id(parent) : "") + ","
+                            + depth + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        
-        // Count users at each level
-        Map<Integer, Integer> levelCounts = new HashMap<>();
-        for (HierarchyNode rootNode : rootNodes) {
-            countUsersByLevel(rootNode, levelCounts);
+        writer.flush();
+    }
+
+    // Whether an employee reports to a manager, directly or through any number of levels
+    public Map<String, Object> checkReachability(Long managerId, Long employeeId) {
+        OrgStructure structure = orgStructureService.getStructure();
+        int manager = orgStructureService.requireNode(structure, managerId);
+        int employee = orgStructureService.requireNode(structure, employeeId);
+        boolean reachable = structure.isDescendant(manager, employee);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("managerId", managerId);
+        result.put("employeeId", employeeId);
+        result.put("reachable", reachable);
+        result.put("levelsBetween", reachable ? structure.level(employee) - structure.level(manager) : null);
+        return result;
+    }
+
+    // Lowest common manager of two employees and how many levels apart they are
+    public Map<String, Object> findCommonManager(Long employeeId, Long otherEmployeeId) {
+        OrgStructure structure = orgStructureService.getStructure();
+        int employee = orgStructureService.requireNode(structure, employeeId);
+        int other = orgStructureService.requireNode(structure, otherEmployeeId);
+        return describeCommonManager(structure, employeeId, employee, otherEmployeeId, other);
+    }
+
+    // Answer many pairs against one snapshot; an unknown employee fails only its own pair
+    public List<Map<String, Object>> findCommonManagers(List<EmployeePairRequest> pairs) {
+        if (pairs.size() > maxPairsPerBatch) {
+            throw new IllegalArgumentException("At most " + maxPairsPerBatch + " pairs can be resolved per request");
         }
-        
-        return Map.of(
-            "totalUsers", totalEmployees,
-            "usersWithManagers", employeesWithManagers,
-            "usersWithoutManagers", employeesWithoutManagers,
-            "adminCount", ceoCount,
-            "managerCount", managerCount,
-            "userCount", otherCount,
-            "maxDepth", maxDepth,
-            "levelCounts", levelCounts
-        );
+        OrgStructure structure = orgStructureService.getStructure();
+        List<Map<String, Object>> results = new ArrayList<>(pairs.size());
+        for (EmployeePairRequest pair : pairs) {
+            Long employeeId = pair.getEmployeeId();
+            Long otherEmployeeId = pair.getOtherEmployeeId();
+            int employee = employeeId != null ? structure.indexOf(employeeId) : OrgStructure.NONE;
+            int other = otherEmployeeId != null ? structure.indexOf(otherEmployeeId) : OrgStructure.NONE;
+            if (employee == OrgStructure.NONE || other == OrgStructure.NONE) {
+                Map<String, Object> result = new HashMap<>();
+                result.put("employeeId", employeeId);
+                result.put("otherEmployeeId", otherEmployeeId);
+                result.put("error", "Employee not found with id: " + (employee == OrgStructure.NONE ? employeeId : otherEmployeeId));
+                results.add(result);
+            } else {
+                results.add(describeCommonManager(structure, employeeId, employee, otherEmployeeId, other));
+            }
+        }
+        return results;
     }
 
-    private int getMaxDepth(HierarchyNode node) {
-        if (node.getChildren().isEmpty()) {
-            return node.getLevel();
+    private Map<String, Object> describeCommonManager(OrgStructure structure, Long employeeId, int employee,
+                                                      Long otherEmployeeId, int other) {
+        int common = structure.lowestCommonAncestor(employee, other);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("employeeId", employeeId);
+        result.put("otherEmployeeId", otherEmployeeId);
+        if (common == OrgStructure.NONE) {
+            // Separate trees: no shared manager and no reporting path between them
+            result.put("commonManagerId", null);
+            result.put("commonManagerName", null);
+            result.put("distance", null);
+            return result;
         }
-        
-        int maxChildDepth = 0;
-        for (HierarchyNode child : node.getChildren()) {
-            maxChildDepth = Math.max(maxChildDepth, getMaxDepth(child));
+
+        Object[] row = structure.row(common);
+        int levelsUp = structure.level(employee) - structure.level(common);
+        int otherLevelsUp = structure.level(other) - structure.level(common);
+        result.put("commonManagerId", structure.id(common));
+        result.put("commonManagerName", row[OrgStructure.NAME] + " " + row[OrgStructure.SURNAME]);
+        result.put("employeeLevelsBelow", levelsUp);
+        result.put("otherLevelsBelow", otherLevelsUp);
+        result.put("distance", levelsUp + otherLevelsUp);
+        return result;
+    }
+
+    // Quote a CSV field when it contains a separator, quote or line break
+    private String csv(Object value) {
+        if (value == null) {
+            return "";
         }
-        
-        return maxChildDepth;
+        String text = value.toString();
+        // Keep spreadsheet applications from evaluating the cell as a formula
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    public Map<String, Object> getHierarchyStatistics() {
+        return getSnapshot().statistics();
     }
 
-    private void countUsersByLevel(HierarchyNode node, Map<Integer, Integer> levelCounts) {
-        levelCounts.merge(node.getLevel(), 1, Integer::sum);
-        for (HierarchyNode child : node.getChildren()) {
-            countUsersByLevel(child, levelCounts);
+    // Statistics over an already loaded employee list and the tree built from it
+    public Map<String, Object> getHierarchyStatistics(List<EmployeeDTO> allEmployees, HierarchyTree tree) {
+        int totalEmployees = allEmployees.size();
+        int employeesWithManagers = 0;
+        int ceoCount = 0;
+        int managerCount = 0;
+        for (EmployeeDTO employee : allEmployees) {
+            if (employee.getManagerId() != null) {
+                employeesWithManagers++;
+            }
+            // Count employees by role
+            String role = employee.getRole() != null ? employee.getRole().toLowerCase() : "";
+            if (isCeoRole(role)) {
+                ceoCount++;
+            }
+            if (role.contains("manager")) {
+                managerCount++;
+            }
         }
+        return statistics(totalEmployees, employeesWithManagers, ceoCount, managerCount, tree.maxDepth(),
+                tree.levelCounts(), tree.roots().size(), tree.orphanCount(), tree.brokenCycleCount());
+    }
+
+    private static boolean isCeoRole(String lowerCaseRole) {
+        return lowerCaseRole.contains("ceo") || lowerCaseRole.contains("chief executive officer");
+    }
+
+    private static Map<String, Object> statistics(int totalEmployees, int employeesWithManagers, int ceoCount,
+                                                  int managerCount, int maxDepth, Map<Integer, Integer> levelCounts,
+                                                  int rootCount, int orphanCount, int brokenCycleCount) {
+        int employeesWithoutManagers = totalEmployees - employeesWithManagers;
+        int otherCount = totalEmployees - ceoCount - managerCount;
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("totalUsers", totalEmployees);
+        statistics.put("usersWithManagers", employeesWithManagers);
+        statistics.put("usersWithoutManagers", employeesWithoutManagers);
+        statistics.put("adminCount", ceoCount);
+        statistics.put("managerCount", managerCount);
+        statistics.put("userCount", otherCount);
+        statistics.put("maxDepth", maxDepth);
+        statistics.put("levelCounts", levelCounts);
+        statistics.put("rootCount", rootCount);
+        statistics.put("orphanCount", orphanCount);
+        statistics.put("brokenCycleCount", brokenCycleCount);
+        return Map.copyOf(statistics);
     }
 }
@@ -0,0 +1,167 @@
+package com.example.Employee_manager.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+public class ImageProcessingService {
+
+    // Avatar sizes rendered by the dashboard (table rows, cards, profile dialog)
+    public static final int[] VARIANT_SIZES = {32, 64, 200};
+
+    public static final String VARIANT_EXTENSION = ".jpg";
+
+    @Value("${app.upload.max-image-dimension:8000}")
+    private int maxImageDimension;
+
+    @Value("${app.upload.max-image-pixels:40000000}")
+    private long maxImagePixels;
+
+    @Value("${app.upload.variant-quality:0.85}")
+    private float variantQuality;
+
+    // Read only the image header and reject anything that would decode into a huge bitmap
+    public void validateDimensions(InputStream inputStream) throws IOException {
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(inputStream)) {
+            ImageReader reader = getReader(imageInput);
+            try {
+                reader.setInput(imageInput, true, true);
+                checkDimensions(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Decode the original once and write every avatar variant next to it
+    public Map<Integer, String> createVariants(Path original, String baseName) throws IOException {
+        BufferedImage source;
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(original.toFile())) {
+            ImageReader reader = getReader(imageInput);
+            try {
+                reader.setInput(imageInput, true, true);
+                checkDimensions(reader.getWidth(0), reader.getHeight(0));
+                source = reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        BufferedImage square = cropToSquare(source);
+        Map<Integer, String> variants = new LinkedHashMap<>();
+        // Scale from the largest variant down so each step stays close to a 2x reduction
+        BufferedImage previous = square;
+        for (int i = VARIANT_SIZES.length - 1; i >= 0; i--) {
+            int size = VARIANT_SIZES[i];
+            previous = scale(previous, size);
+            String filename = variantFilename(baseName, size);
+            writeJpeg(previous, original.resolveSibling(filename));
+            variants.put(size, filename);
+        }
+        return variants;
+    }
+
+    public static String variantFilename(String baseName, int size) {
+        return baseName + "_" + size + VARIANT_EXTENSION;
+    }
+
+    private ImageReader getReader(ImageInputStream imageInput) {
+        if (imageInput == null) {
+            throw new IllegalArgumentException("File must be an image");
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+        if (!readers.hasNext()) {
+            throw new IllegalArgumentException("Unsupported image format");
+        }
+        return readers.next();
+    }
+
+    private void checkDimensions(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image has invalid dimensions");
+        }
+        if (width > maxImageDimension || height > maxImageDimension
+                || (long) width * height > maxImagePixels) {
+            throw new IllegalArgumentException("Image dimensions are too large: " + width + "x" + height);
+        }
+    }
+
+    private BufferedImage cropToSquare(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        int x = (image.getWidth() - side) / 2;
+        int y = (image.getHeight() - side) / 2;
+        return image.getSubimage(x, y, side, side);
+    }
+
+    private BufferedImage scale(BufferedImage image, int size) {
+        BufferedImage current = image;
+        int currentSize = image.getWidth();
+        // Halve repeatedly for large reductions; a single bilinear pass aliases badly
+        while (currentSize / 2 >= size) {
+            currentSize /= 2;
+            current = draw(current, currentSize);
+        }
+        if (currentSize != size || current.getType() != BufferedImage.TYPE_INT_RGB) {
+            current = draw(current, size);
+        }
+        return current;
+    }
+
+    private BufferedImage draw(BufferedImage image, int size) {
+        // JPEG has no alpha channel, so transparent areas are flattened onto white
+        BufferedImage target = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, size, size);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, size, size, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        // Write to a temp file and rename so readers never see a half-written variant
+        Path temp = target.resolveSibling(".tmp-" + UUID.randomUUID());
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (OutputStream out = Files.newOutputStream(temp);
+             ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(variantQuality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.entity.Employee;
+import com.example.Employee_manager.event.EntityChangeEvent;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Reconciles manager assignments: every manager-role employee reports to the CEO and sits in
+// the department they manage. Two set-based UPDATEs in one transaction do the work. Runs are
+// kept apart by a local lock (only one instance runs, see SyncVersionService) and hold the
+// reporting line lock against other manager changes; the state of the current or last run can
+// be polled while it works.
+@Service
+public class ManagerAssignmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(ManagerAssignmentService.class);
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ReportingLineService reportingLineService;
+
+    @Autowired
+    private SyncVersionService syncVersionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ReentrantLock localLock = new ReentrantLock();
+
+    private volatile Map<String, Object> progress = Map.of("state", "idle");
+
+    @Scheduled(cron = "${app.reconcile.manager-assignments.cron:0 30 2 * * *}")
+    public void scheduledReconcile() {
+        reconcile("scheduled");
+    }
+
+    // Run now unless a run is already in progress
+    public Map<String, Object> reconcile(String trigger) {
+        if (!localLock.tryLock()) {
+            return skipped(trigger, "A reconciliation is already running");
+        }
+        try {
+            Map<String, Object> result = new TransactionTemplate(transactionManager).execute(status -> run(trigger));
+            progress = result;
+            return result;
+        } catch (RuntimeException e) {
+            Map<String, Object> failed = new HashMap<>(progress);
+            failed.put("state", "failed");
+            failed.put("error", e.getMessage());
+            failed.put("finishedAt", LocalDateTime.now());
+            progress = failed;
+            throw e;
+        } finally {
+            localLock.unlock();
+        }
+    }
+
+    // State of the current run, or the outcome of the last one
+    public Map<String, Object> getProgress() {
+        return progress;
+    }
+
+    private Map<String, Object> run(String trigger) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("trigger", trigger);
+        state.put("startedAt", LocalDateTime.now());
+        report(state, "locking");
+        // Moves and edits wait until the run commits, and the run waits for theirs
+        reportingLineService.lock();
+
+        report(state, "finding-ceo");
+        List<Employee> candidates = employeeRepository.findCeoCandidates(PageRequest.of(0, 1));
+        if (candidates.isEmpty()) {
+            return skipped(trigger, "No CEO found, cannot assign managers");
+        }
+        Employee ceo = candidates.get(0);
+
+        // The CEO and anyone above them stay where they are, or the chart would loop
+        List<Long> excludedIds = reportingLineService.getManagementChain(ceo.getId());
+
+        long version = syncVersionService.next();
+        report(state, "assigning-managers");
+        int managersAssigned = employeeRepository.assignManagersToCeo(ceo, excludedIds, version);
+        state.put("managersAssigned", managersAssigned);
+
+        report(state, "assigning-departments");
+        int departmentsAssigned = employeeRepository.assignManagedDepartments(version);
+        state.put("departmentsAssigned", departmentsAssigned);
+
+        // Both statements stamped the same version, which finds every changed row once
+        List<Long> changedIds = managersAssigned + departmentsAssigned > 0
+                ? employeeRepository.findIdsByRowVersion(version) : List.of();
+        if (!changedIds.isEmpty()) {
+            eventPublisher.publishEvent(EntityChangeEvent.bulk(
+                    EntityChangeEvent.EntityType.EMPLOYEE, EntityChangeEvent.Action.UPDATED, changedIds));
+        }
+
+        state.put("ceoId", ceo.getId());
+        state.put("employeesChanged", changedIds.size());
+        state.put("finishedAt", LocalDateTime.now());
+        state.put("state", "completed");
+        log.info("Manager assignments reconciled ({}): {} managers reassigned, {} departments assigned",
+                trigger, managersAssigned, departmentsAssigned);
+        return state;
+    }
+
+    private void report(Map<String, Object> state, String phase) {
+        state.put("state", "running");
+        state.put("phase", phase);
+        progress = new HashMap<>(state);
+    }
+
+    private Map<String, Object> skipped(String trigger, String reason) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("trigger", trigger);
+        result.put("state", "skipped");
+        result.put("reason", reason);
+        result.put("finishedAt", LocalDateTime.now());
+        return result;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.dto.OrgChartNodeDTO;
+import com.example.Employee_manager.entity.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Serves the org chart a few levels at a time. Child counts and subtree sizes come precomputed
+// with the shared OrgStructure, so a response only costs the nodes it returns.
+@Service
+public class OrgChartService {
+
+    private static final int AVATAR_SIZE = 64;
+
+    @Autowired
+    private OrgStructureService orgStructureService;
+
+    @Autowired
+    private FileUploadService fileUploadService;
+
+    @Value("${app.hierarchy.max-depth:5}")
+    private int maxDepth;
+
+    @Value("${app.hierarchy.max-child-limit:100}")
+    private int maxChildLimit;
+
+    @Value("${app.hierarchy.max-nodes:500}")
+    private int maxNodes;
+
+    // Top of the chart: the employees without a (known) manager, paged like any other level
+    public Map<String, Object> getRoots(int offset, int depth, int childLimit) {
+        OrgStructure chart = orgStructureService.getStructure();
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+        int from = Math.min(offset, chart.rootCount());
+        int to = Math.min(from + clampChildLimit(childLimit), chart.rootCount());
+        List<OrgChartNodeDTO> items = expand(chart, chart.roots(), from, to,
+                clampDepth(depth), clampChildLimit(childLimit));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items);
+        response.put("offset", offset);
+        response.put("total", chart.rootCount());
+        response.put("totalEmployees", chart.size());
+        return response;
+    }
+
+    // One employee and its reports down to the given depth, at most childLimit reports per node
+    public OrgChartNodeDTO getSubtree(Long rootId, int depth, int childLimit) {
+        OrgStructure chart = orgStructureService.getStructure();
+        int root = orgStructureService.requireNode(chart, rootId);
+        return expand(chart, new int[]{root}, 0, 1, clampDepth(depth), clampChildLimit(childLimit)).get(0);
+    }
+
+    // Next page of an employee's direct reports, for expanding a node that reported hasMoreChildren
+    public Map<String, Object> getChildren(Long managerId, int offset, int limit, int depth) {
+        OrgStructure chart = orgStructureService.getStructure();
+        int manager = orgStructureService.requireNode(chart, managerId);
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative");
+        }
+
+        int total = chart.childCount(manager);
+        int from = Math.min(offset, total);
+        int to = Math.min(from + clampChildLimit(limit), total);
+        int[] page = new int[to - from];
+        for (int i = from; i < to; i++) {
+            page[i - from] = chart.child(manager, i);
+        }
+        List<OrgChartNodeDTO> items = expand(chart, page, 0, page.length,
+                clampDepth(depth), clampChildLimit(limit));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", items);
+        response.put("offset", offset);
+        response.put("total", total);
+        return response;
+    }
+
+    // Breadth first, so the node budget is spent on the upper levels before any deep branch
+    private List<OrgChartNodeDTO> expand(OrgStructure chart, int[] nodes, int from, int to, int depth, int childLimit) {
+        record Pending(int node, int level, OrgChartNodeDTO dto) {}
+
+        List<OrgChartNodeDTO> items = new ArrayList<>(to - from);
+        ArrayDeque<Pending> queue = new ArrayDeque<>();
+        int budget = maxNodes;
+        for (int i = from; i < to; i++) {
+            OrgChartNodeDTO dto = toNode(chart, nodes[i]);
+            items.add(dto);
+            queue.add(new Pending(nodes[i], 0, dto));
+            budget--;
+        }
+
+        while (!queue.isEmpty()) {
+            Pending pending = queue.poll();
+            int childCount = chart.childCount(pending.node());
+            if (pending.level() >= depth || childCount == 0 || budget <= 0) {
+                // Not expanded: children stays null and the client asks for them when needed
+                pending.dto().setHasMoreChildren(childCount > 0);
+                continue;
+            }
+
+            int loaded = Math.min(Math.min(childCount, childLimit), budget);
+            List<OrgChartNodeDTO> children = new ArrayList<>(loaded);
+            for (int i = 0; i < loaded; i++) {
+                int child = chart.child(pending.node(), i);
+                OrgChartNodeDTO dto = toNode(chart, child);
+                children.add(dto);
+                queue.add(new Pending(child, pending.level() + 1, dto));
+            }
+            budget -= loaded;
+            pending.dto().setChildren(children);
+            pending.dto().setHasMoreChildren(loaded < childCount);
+        }
+        return items;
+    }
+
+    private OrgChartNodeDTO toNode(OrgStructure chart, int node) {
+        Object[] row = chart.row(node);
+        OrgChartNodeDTO dto = new OrgChartNodeDTO();
+        dto.setId((Long) row[OrgStructure.ID]);
+        dto.setName((String) row[OrgStructure.NAME]);
+        dto.setSurname((String) row[OrgStructure.SURNAME]);
+        dto.setRole((String) row[OrgStructure.ROLE]);
+        dto.setDepartmentName((String) row[OrgStructure.DEPARTMENT]);
+        dto.setChildCount(chart.childCount(node));
+        dto.setSubtreeSize(chart.subtreeSize(node));
+
+        // Small variant when it exists, so a chart page never pulls full-size pictures
+        String picture = (String) row[OrgStructure.PICTURE];
+        String avatar = fileUploadService.getVariantUrls(picture).get(AVATAR_SIZE);
+        dto.setAvatarUrl(avatar != null ? avatar : Employee.avatarUrl((String) row[OrgStructure.EMAIL], picture));
+        return dto;
+    }
+
+    private int clampDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Depth must not be negative");
+        }
+        return Math.min(depth, maxDepth);
+    }
+
+    private int clampChildLimit(int childLimit) {
+        if (childLimit < 1) {
+            throw new IllegalArgumentException("Child limit must be at least 1");
+        }
+        return Math.min(childLimit, maxChildLimit);
+    }
+}
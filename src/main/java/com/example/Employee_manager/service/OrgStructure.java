@@ -0,0 +1,342 @@
+package com.example.Employee_manager.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Immutable, array-backed reporting structure of the whole organisation. Nodes are int indexes
+// into the rows of EmployeeRepository.findOrgChartRows(); every traversal is iterative, so deep
+// or malformed chains can neither overflow the stack nor loop.
+public final class OrgStructure {
+
+    // Column positions in EmployeeRepository.findOrgChartRows()
+    public static final int ID = 0, NAME = 1, SURNAME = 2, ROLE = 3, EMAIL = 4, PICTURE = 5, MANAGER_ID = 6, DEPARTMENT = 7,
+            BIRTH_DATE = 8, EMPLOYEE_NUMBER = 9, SALARY = 10, DEPARTMENT_ID = 11;
+
+    public static final int NONE = -1;
+
+    // Called for each node of a walk, in pre-order; depth is relative to the walk's start node
+    @FunctionalInterface
+    public interface NodeVisitor {
+        void visit(int node, int depth);
+    }
+
+    private final String version;
+    private final Object[][] rows;
+    private final long[] sortedIds;
+    private final int[] sortedNodes;
+    private final int[] parent;
+    private final int[] roots;
+    // children[childStart[n] .. childStart[n + 1]) are the direct reports of n
+    private final int[] childStart;
+    private final int[] children;
+    private final int[] level;
+    // Pre-order position: the subtree of n is exactly positions [preorder[n], preorder[n] + subtreeSize[n])
+    private final int[] preorder;
+    private final int[] subtreeSize;
+    private final int brokenCycleCount;
+    // jumps[k][n] is the manager 2^k levels above n, or NONE; built on the first common-manager query
+    private volatile int[][] jumps;
+
+    private OrgStructure(String version, Object[][] rows, long[] sortedIds, int[] sortedNodes, int[] parent,
+                         int[] roots, int[] childStart, int[] children, int[] level, int[] preorder,
+                         int[] subtreeSize, int brokenCycleCount) {
+        this.version = version;
+        this.rows = rows;
+        this.sortedIds = sortedIds;
+        this.sortedNodes = sortedNodes;
+        this.parent = parent;
+        this.roots = roots;
+        this.childStart = childStart;
+        this.children = children;
+        this.level = level;
+        this.preorder = preorder;
+        this.subtreeSize = subtreeSize;
+        this.brokenCycleCount = brokenCycleCount;
+    }
+
+    public static OrgStructure build(String version, List<Object[]> rowList) {
+        Object[][] rows = rowList.toArray(new Object[0][]);
+        int n = rows.length;
+
+        // Sorted ids with their node next to them: id lookups are a binary search without boxing
+        long[] ids = new long[n];
+        Integer[] byId = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = (Long) rows[i][ID];
+            byId[i] = i;
+        }
+        Arrays.sort(byId, (a, b) -> Long.compare(ids[a], ids[b]));
+        long[] sortedIds = new long[n];
+        int[] sortedNodes = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedNodes[i] = byId[i];
+            sortedIds[i] = ids[byId[i]];
+        }
+
+        // A manager that is not in the result makes the employee a root
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            Long managerId = (Long) rows[i][MANAGER_ID];
+            int manager = managerId != null ? find(sortedIds, sortedNodes, managerId) : NONE;
+            parent[i] = manager != i ? manager : NONE;
+        }
+        int brokenCycleCount = breakCycles(parent);
+
+        // Bucket the reports per manager, keeping row order within each bucket
+        int[] childStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (parent[i] != NONE) {
+                childStart[parent[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            childStart[i + 1] += childStart[i];
+        }
+        int[] fill = Arrays.copyOf(childStart, n);
+        int[] children = new int[childStart[n]];
+        int[] roots = new int[n - childStart[n]];
+        int r = 0;
+        for (int i = 0; i < n; i++) {
+            if (parent[i] != NONE) {
+                children[fill[parent[i]]++] = i;
+            } else {
+                roots[r++] = i;
+            }
+        }
+
+        // One iterative pre-order walk numbers the nodes and records their levels
+        int[] level = new int[n];
+        int[] preorder = new int[n];
+        int[] order = new int[n];
+        int[] stack = new int[n];
+        int top = 0;
+        int position = 0;
+        for (int i = roots.length - 1; i >= 0; i--) {
+            stack[top++] = roots[i];
+        }
+        while (top > 0) {
+            int node = stack[--top];
+            preorder[node] = position;
+            order[position++] = node;
+            for (int i = childStart[node + 1] - 1; i >= childStart[node]; i--) {
+                level[children[i]] = level[node] + 1;
+                stack[top++] = children[i];
+            }
+        }
+
+        // Reverse pre-order visits every report before its manager
+        int[] subtreeSize = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            int node = order[i];
+            subtreeSize[node]++;
+            if (parent[node] != NONE) {
+                subtreeSize[parent[node]] += subtreeSize[node];
+            }
+        }
+
+        return new OrgStructure(version, rows, sortedIds, sortedNodes, parent, roots, childStart, children,
+                level, preorder, subtreeSize, brokenCycleCount);
+    }
+
+    // Bad data can make managers report to each other; cut each such loop where the walk re-entered it
+    // so its members hang as their own root. Returns the number of cuts.
+    static int breakCycles(int[] parent) {
+        byte[] state = new byte[parent.length]; // 0 = unseen, 1 = on the current path, 2 = done
+        int[] path = new int[parent.length];
+        int cuts = 0;
+        for (int start = 0; start < parent.length; start++) {
+            int length = 0;
+            int node = start;
+            while (node >= 0 && state[node] == 0) {
+                state[node] = 1;
+                path[length++] = node;
+                node = parent[node];
+            }
+            if (node >= 0 && state[node] == 1) {
+                parent[path[length - 1]] = NONE;
+                cuts++;
+            }
+            for (int i = 0; i < length; i++) {
+                state[path[i]] = 2;
+            }
+        }
+        return cuts;
+    }
+
+    private static int find(long[] sortedIds, int[] sortedNodes, long id) {
+        int position = Arrays.binarySearch(sortedIds, id);
+        return position >= 0 ? sortedNodes[position] : NONE;
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    // Node of an employee id, or NONE
+    public int indexOf(long employeeId) {
+        return find(sortedIds, sortedNodes, employeeId);
+    }
+
+    public long id(int node) {
+        return (Long) rows[node][ID];
+    }
+
+    public Object[] row(int node) {
+        return rows[node];
+    }
+
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    public int[] roots() {
+        return roots.clone();
+    }
+
+    public int rootCount() {
+        return roots.length;
+    }
+
+    public int root(int i) {
+        return roots[i];
+    }
+
+    public int childCount(int node) {
+        return childStart[node + 1] - childStart[node];
+    }
+
+    public int child(int node, int i) {
+        return children[childStart[node] + i];
+    }
+
+    public int level(int node) {
+        return level[node];
+    }
+
+    public int subtreeSize(int node) {
+        return subtreeSize[node];
+    }
+
+    public int brokenCycleCount() {
+        return brokenCycleCount;
+    }
+
+    // Whether descendant reports to ancestor, directly or indirectly; a node is not its own descendant
+    public boolean isDescendant(int ancestor, int descendant) {
+        return ancestor != descendant
+                && preorder[descendant] >= preorder[ancestor]
+                && preorder[descendant] < preorder[ancestor] + subtreeSize[ancestor];
+    }
+
+    // Lowest manager both employees report to, counting each employee as in their own line
+    // (so it is one of them when one manages the other), or NONE when they are in separate trees.
+    // O(log depth) per query once the jump table exists.
+    public int lowestCommonAncestor(int a, int b) {
+        int[][] up = jumpTable();
+        if (level[a] < level[b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+
+        // Lift the deeper employee to the other's level
+        int lift = level[a] - level[b];
+        for (int k = 0; lift > 0; k++, lift >>= 1) {
+            if ((lift & 1) != 0) {
+                a = up[k][a];
+            }
+        }
+        if (a == b) {
+            return a;
+        }
+
+        // Climb both while their ancestors still differ; the parent of where they stop is the answer
+        for (int k = up.length - 1; k >= 0; k--) {
+            if (up[k][a] != up[k][b]) {
+                a = up[k][a];
+                b = up[k][b];
+            }
+        }
+        return parent[a];
+    }
+
+    private int[][] jumpTable() {
+        int[][] up = jumps;
+        if (up != null) {
+            return up;
+        }
+
+        int maxLevel = 0;
+        for (int l : level) {
+            maxLevel = Math.max(maxLevel, l);
+        }
+        int height = 32 - Integer.numberOfLeadingZeros(Math.max(maxLevel, 1));
+        up = new int[height][];
+        up[0] = parent;
+        for (int k = 1; k < height; k++) {
+            int[] previous = up[k - 1];
+            int[] current = new int[parent.length];
+            for (int node = 0; node < parent.length; node++) {
+                int half = previous[node];
+                current[node] = half != NONE ? previous[half] : NONE;
+            }
+            up[k] = current;
+        }
+        // Racing threads build identical tables, so the last write winning is harmless
+        jumps = up;
+        return up;
+    }
+
+    // Ids from the top of the chart down to the employee, sized up front instead of prepending
+    public long[] pathIds(int node) {
+        long[] path = new long[level[node] + 1];
+        int visited = 0;
+        for (int current = node; current != NONE && visited < path.length; current = parent[current]) {
+            path[path.length - 1 - visited++] = id(current);
+        }
+        return path;
+    }
+
+    // Ids of every direct and indirect report, in pre-order
+    public long[] descendantIds(int node) {
+        long[] ids = new long[subtreeSize[node] - 1];
+        int[] count = new int[1];
+        walk(node, (current, depth) -> {
+            if (current != node) {
+                ids[count[0]++] = id(current);
+            }
+        });
+        return ids;
+    }
+
+    // Depth-first, pre-order walk of a subtree with an explicit stack. The visited set guards
+    // against revisiting a node even though build() has already cut every cycle.
+    public void walk(int start, NodeVisitor visitor) {
+        int[] stack = new int[subtreeSize[start]];
+        int[] depths = new int[subtreeSize[start]];
+        BitSet visited = new BitSet(rows.length);
+        int top = 0;
+        stack[top] = start;
+        depths[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int depth = depths[top];
+            if (visited.get(node)) {
+                continue;
+            }
+            visited.set(node);
+            visitor.visit(node, depth);
+            for (int i = childStart[node + 1] - 1; i >= childStart[node]; i--) {
+                if (!visited.get(children[i]) && top < stack.length) {
+                    stack[top] = children[i];
+                    depths[top++] = depth + 1;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.config.CacheConfig;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+// Holds the in-memory reporting structure shared by the org chart, the hierarchy queries and the
+// hierarchy tree and statistics snapshot, so a change of employee data costs one rebuild
+@Service
+public class OrgStructureService {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // Current structure, rebuilt only when employee or department data has changed
+    public OrgStructure getStructure() {
+        String version = resourceVersionService.employeeDataVersion();
+        // Concurrent callers of a new version wait for one build; older versions age out of the region
+        return cacheManager.getCache(CacheConfig.HIERARCHY)
+                .get(version, () -> OrgStructure.build(version, employeeRepository.findOrgChartRows()));
+    }
+
+    // Node of an employee in the given structure
+    public int requireNode(OrgStructure structure, Long employeeId) {
+        int node = employeeId != null ? structure.indexOf(employeeId) : OrgStructure.NONE;
+        if (node == OrgStructure.NONE) {
+            throw new RuntimeException("Employee not found with id: " + employeeId);
+        }
+        return node;
+    }
+}
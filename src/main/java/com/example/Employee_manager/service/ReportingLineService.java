@@ -0,0 +1,49 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.repository.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Guards every change of who reports to whom. Each such change takes one org-wide lock held
+// until its transaction ends, then checks the new reporting line against the rows as they are
+// now, so two concurrent moves can never each pass the check and together close a loop. The lock
+// lives in this JVM, which is enough because only one instance runs against a database (see
+// SyncVersionService).
+@Service
+public class ReportingLineService {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    private final ReentrantLock localLock = new ReentrantLock();
+
+    // Block until no other transaction can change a reporting line, until this transaction ends
+    public void lock() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Reporting lines can only be changed inside a transaction");
+        }
+        localLock.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                localLock.unlock();
+            }
+        });
+    }
+
+    // Whether making managerId the manager of employeeId would close a loop; one query of O(depth).
+    // Call after lock(), so the chain cannot change before the new manager is written.
+    public boolean wouldCreateCycle(Long employeeId, Long managerId) {
+        return managerId.equals(employeeId) || getManagementChain(managerId).contains(employeeId);
+    }
+
+    // The employee followed by every manager above them
+    public List<Long> getManagementChain(Long employeeId) {
+        return employeeRepository.findManagementChainIds(employeeId);
+    }
+}
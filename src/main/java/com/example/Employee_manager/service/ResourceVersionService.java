@@ -0,0 +1,67 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.event.EntityChangeEvent;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Version counters for the data behind the collection endpoints, used as strong ETags.
+// Counters are bumped after commit, so every reader takes the version before it loads the data:
+// it can then only pair new data with an old tag (costing one extra 200 or rebuild later), never
+// old data with a new tag. Controllers check If-None-Match against it before touching the database,
+// and version-keyed caches such as OrgStructureService label what they build with it.
+// The startup epoch invalidates every tag handed out by a previous run.
+@Service
+public class ResourceVersionService {
+
+    // Clients must revalidate every time, but may keep the body and send If-None-Match
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<EntityChangeEvent.EntityType, AtomicLong> versions = new EnumMap<>(EntityChangeEvent.EntityType.class);
+
+    public ResourceVersionService() {
+        for (EntityChangeEvent.EntityType type : EntityChangeEvent.EntityType.values()) {
+            versions.put(type, new AtomicLong());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEntityChange(EntityChangeEvent change) {
+        versions.get(change.getEntityType()).incrementAndGet();
+    }
+
+    public long getVersion(EntityChangeEvent.EntityType type) {
+        return versions.get(type).get();
+    }
+
+    // Version key of data built from the given entity types
+    public String version(EntityChangeEvent.EntityType... dependsOn) {
+        StringBuilder key = new StringBuilder(epoch);
+        for (EntityChangeEvent.EntityType type : dependsOn) {
+            key.append('-').append(Long.toString(getVersion(type), 36));
+        }
+        return key.toString();
+    }
+
+    // Strong ETag for a resource built from the given entity types
+    public String etag(String resource, EntityChangeEvent.EntityType... dependsOn) {
+        return "\"" + resource + "-" + version(dependsOn) + "\"";
+    }
+
+    // Employee and department DTOs embed each other's names and counts, and the
+    // hierarchy is built from both, so all of these resources depend on both tables
+    public String employeeDataVersion() {
+        return version(EntityChangeEvent.EntityType.EMPLOYEE, EntityChangeEvent.EntityType.DEPARTMENT);
+    }
+
+    public String employeeDataEtag(String resource) {
+        return "\"" + resource + "-" + employeeDataVersion() + "\"";
+    }
+}
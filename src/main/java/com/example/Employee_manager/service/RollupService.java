@@ -0,0 +1,410 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.dto.EmployeeDTO;
+import com.example.Employee_manager.event.EntityChangeEvent;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Headcount, payroll and role mix for every employee's whole subtree. Built in one post-order
+// pass, then kept current from committed employee changes by touching only the ancestor path.
+// Changes it cannot apply exactly (no payload, unknown employee) mark it for a full rebuild.
+@Service
+public class RollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupService.class);
+
+    private static final String UNASSIGNED_ROLE = "Unassigned";
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Value("${app.analytics.max-results:200}")
+    private int maxResults;
+
+    // One employee with the aggregates of its subtree, itself included
+    private static final class Node {
+        final long id;
+        Long managerId;
+        String name;
+        String surname;
+        String role;
+        double salary;
+        final List<Node> reports = new ArrayList<>();
+        Node manager;
+
+        int subtreeSize;
+        double salarySum;
+        double salaryMin;
+        double salaryMax;
+        final Map<String, Integer> roleCounts = new HashMap<>();
+
+        Node(long id) {
+            this.id = id;
+        }
+    }
+
+    // Nodes and their aggregates are guarded by this service's monitor, which committing
+    // transactions also need for onEntityChange; rebuilds only take it to swap their result in
+    private Map<Long, Node> nodes;
+
+    private boolean stale = true;
+
+    // One rebuild at a time, without holding the monitor while the rows are read
+    private final Object rebuildLock = new Object();
+
+    // Changes committed while a rebuild reads the rows, replayed onto its result; null when none is running
+    private List<EntityChangeEvent> missedChanges;
+
+    // Whole-organisation headcount and payroll
+    public Map<String, Object> getOrganizationRollup() {
+        ensureBuilt();
+        int headcount = 0;
+        double payroll = 0;
+        synchronized (this) {
+            for (Node node : nodes.values()) {
+                if (node.manager == null) {
+                    headcount += node.subtreeSize;
+                    payroll += node.salarySum;
+                }
+            }
+        }
+        Map<String, Object> rollup = new HashMap<>();
+        rollup.put("headcount", headcount);
+        rollup.put("totalSalary", payroll);
+        rollup.put("averageSalary", headcount == 0 ? 0.0 : payroll / headcount);
+        return rollup;
+    }
+
+    // Everyone under one manager, excluding the manager
+    public Map<String, Object> getSpanOfControl(Long managerId) {
+        ensureBuilt();
+        synchronized (this) {
+            Node manager = nodes.get(managerId);
+            if (manager == null) {
+                throw new RuntimeException("Employee not found with id: " + managerId);
+            }
+            return describe(manager);
+        }
+    }
+
+    // Managers with the largest organisations first
+    public List<Map<String, Object>> getSpansOfControl(int limit) {
+        ensureBuilt();
+        int size = Math.max(1, Math.min(limit, maxResults));
+        synchronized (this) {
+            return nodes.values().stream()
+                    .filter(node -> !node.reports.isEmpty())
+                    .sorted(Comparator.comparingInt((Node node) -> node.subtreeSize).reversed()
+                            .thenComparingLong(node -> node.id))
+                    .limit(size)
+                    .map(this::describe)
+                    .toList();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onEntityChange(EntityChangeEvent change) {
+        if (change.getEntityType() != EntityChangeEvent.EntityType.EMPLOYEE) {
+            return;
+        }
+        if (missedChanges != null) {
+            // The rows being read may or may not include this change
+            missedChanges.add(change);
+        } else if (!stale) {
+            apply(change);
+        }
+    }
+
+    private void apply(EntityChangeEvent change) {
+        if (change.isBulk()) {
+            // A set-based change touches too many nodes to patch one by one
+            stale = true;
+        } else if (change.getAction() == EntityChangeEvent.Action.DELETED) {
+            remove(change.getEntityId());
+        } else if (change.getPayload() instanceof EmployeeDTO employee) {
+            upsert(employee);
+        } else {
+            // Side-effect change without the new state: recount from the database on the next read
+            stale = true;
+        }
+    }
+
+    // Safety net against changes that did not come through the service layer
+    @Scheduled(fixedDelayString = "${app.analytics.rebuild-interval-ms:900000}",
+               initialDelayString = "${app.analytics.rebuild-interval-ms:900000}")
+    public synchronized void scheduleRebuild() {
+        stale = true;
+    }
+
+    private synchronized boolean isCurrent() {
+        return !stale && nodes != null;
+    }
+
+    private void ensureBuilt() {
+        if (isCurrent()) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                if (!stale && nodes != null) {
+                    return;
+                }
+                missedChanges = new ArrayList<>();
+            }
+
+            Map<Long, Node> built;
+            try {
+                built = build(employeeRepository.findRollupRows());
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    missedChanges = null;
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                nodes = built;
+                stale = false;
+                // A change with the employee's new state can be applied again even if the rows already
+                // reflect it; anything else marks the result stale for the next read
+                List<EntityChangeEvent> missed = missedChanges;
+                missedChanges = null;
+                for (int i = 0; i < missed.size() && !stale; i++) {
+                    apply(missed.get(i));
+                }
+            }
+        }
+    }
+
+    private Map<Long, Node> build(List<Object[]> rows) {
+        Map<Long, Node> built = new HashMap<>();
+        for (Object[] row : rows) {
+            Node node = new Node((Long) row[0]);
+            node.managerId = (Long) row[1];
+            node.name = (String) row[2];
+            node.surname = (String) row[3];
+            node.role = normalizeRole((String) row[4]);
+            node.salary = row[5] != null ? (Double) row[5] : 0.0;
+            built.put(node.id, node);
+        }
+
+        // Link reports to managers; a manager outside the data makes the employee a root
+        List<Node> byIndex = new ArrayList<>(built.values());
+        Map<Long, Integer> indexById = new HashMap<>(byIndex.size() * 2);
+        for (int i = 0; i < byIndex.size(); i++) {
+            indexById.put(byIndex.get(i).id, i);
+        }
+        int[] parent = new int[byIndex.size()];
+        for (int i = 0; i < byIndex.size(); i++) {
+            Long managerId = byIndex.get(i).managerId;
+            Integer manager = managerId != null ? indexById.get(managerId) : null;
+            parent[i] = manager != null && manager != i ? manager : OrgStructure.NONE;
+        }
+        int cuts = OrgStructure.breakCycles(parent);
+        if (cuts > 0) {
+            log.warn("Reporting structure contains {} manager loop(s); rollups treat them as separate trees", cuts);
+        }
+        for (int i = 0; i < byIndex.size(); i++) {
+            if (parent[i] != OrgStructure.NONE) {
+                Node node = byIndex.get(i);
+                node.manager = byIndex.get(parent[i]);
+                node.manager.reports.add(node);
+            }
+        }
+
+        // Post-order without recursion: every report is finished before its manager
+        List<Node> order = new ArrayList<>(byIndex.size());
+        for (Node node : byIndex) {
+            if (node.manager == null) {
+                order.add(node);
+            }
+        }
+        for (int i = 0; i < order.size(); i++) {
+            order.addAll(order.get(i).reports);
+        }
+        for (int i = order.size() - 1; i >= 0; i--) {
+            recompute(order.get(i));
+        }
+
+        return built;
+    }
+
+    // Aggregates of a node from its own values and its reports' aggregates
+    private void recompute(Node node) {
+        node.subtreeSize = 1;
+        node.salarySum = node.salary;
+        node.salaryMin = node.salary;
+        node.salaryMax = node.salary;
+        node.roleCounts.clear();
+        node.roleCounts.put(node.role, 1);
+        for (Node report : node.reports) {
+            node.subtreeSize += report.subtreeSize;
+            node.salarySum += report.salarySum;
+            node.salaryMin = Math.min(node.salaryMin, report.salaryMin);
+            node.salaryMax = Math.max(node.salaryMax, report.salaryMax);
+            report.roleCounts.forEach((role, count) -> node.roleCounts.merge(role, count, Integer::sum));
+        }
+    }
+
+    private void upsert(EmployeeDTO employee) {
+        Node node = nodes.get(employee.getId());
+        boolean created = node == null;
+        if (created) {
+            node = new Node(employee.getId());
+            nodes.put(node.id, node);
+        }
+
+        Node newManager = employee.getManagerId() != null ? nodes.get(employee.getManagerId()) : null;
+        if (employee.getManagerId() != null && newManager == null) {
+            // Manager not known here yet, for example created in the same transaction
+            stale = true;
+            return;
+        }
+        if (newManager != null && (newManager == node || isInSubtree(newManager, node))) {
+            stale = true;
+            return;
+        }
+
+        // Take the old subtree totals out of the old ancestors before anything changes
+        if (!created && node.manager != null) {
+            subtractFromAncestors(node.manager, node);
+        }
+        if (!created && node.manager != newManager) {
+            if (node.manager != null) {
+                node.manager.reports.remove(node);
+            }
+            if (newManager != null) {
+                newManager.reports.add(node);
+            }
+        } else if (created && newManager != null) {
+            newManager.reports.add(node);
+        }
+
+        node.manager = newManager;
+        node.managerId = employee.getManagerId();
+        node.name = employee.getName();
+        node.surname = employee.getSurname();
+        node.role = normalizeRole(employee.getRole());
+        node.salary = employee.getSalary() != null ? employee.getSalary() : 0.0;
+        recompute(node);
+
+        if (newManager != null) {
+            addToAncestors(newManager, node);
+        }
+    }
+
+    private void remove(Long employeeId) {
+        Node node = nodes.remove(employeeId);
+        if (node == null) {
+            return;
+        }
+        if (!node.reports.isEmpty()) {
+            // Deletes are only allowed for employees without reports; anything else needs a recount
+            stale = true;
+            return;
+        }
+        if (node.manager != null) {
+            subtractFromAncestors(node.manager, node);
+            node.manager.reports.remove(node);
+        }
+    }
+
+    // Counts and sums move by the subtree's totals; min and max only need a recount where they came from it
+    private void subtractFromAncestors(Node start, Node subtree) {
+        for (Node ancestor = start; ancestor != null; ancestor = ancestor.manager) {
+            ancestor.subtreeSize -= subtree.subtreeSize;
+            ancestor.salarySum -= subtree.salarySum;
+            Node current = ancestor;
+            subtree.roleCounts.forEach((role, count) -> current.roleCounts.computeIfPresent(role,
+                    (key, total) -> total - count > 0 ? total - count : null));
+            if (ancestor.salaryMin == subtree.salaryMin || ancestor.salaryMax == subtree.salaryMax) {
+                recomputeExtremes(ancestor, subtree);
+            }
+        }
+    }
+
+    private void addToAncestors(Node start, Node subtree) {
+        for (Node ancestor = start; ancestor != null; ancestor = ancestor.manager) {
+            ancestor.subtreeSize += subtree.subtreeSize;
+            ancestor.salarySum += subtree.salarySum;
+            ancestor.salaryMin = Math.min(ancestor.salaryMin, subtree.salaryMin);
+            ancestor.salaryMax = Math.max(ancestor.salaryMax, subtree.salaryMax);
+            Node current = ancestor;
+            subtree.roleCounts.forEach((role, count) -> current.roleCounts.merge(role, count, Integer::sum));
+        }
+    }
+
+    // Min and max of an ancestor from its own salary and its reports, leaving out the subtree being removed
+    private void recomputeExtremes(Node ancestor, Node excluded) {
+        ancestor.salaryMin = ancestor.salary;
+        ancestor.salaryMax = ancestor.salary;
+        for (Node report : ancestor.reports) {
+            if (report != excluded) {
+                ancestor.salaryMin = Math.min(ancestor.salaryMin, report.salaryMin);
+                ancestor.salaryMax = Math.max(ancestor.salaryMax, report.salaryMax);
+            }
+        }
+    }
+
+    private boolean isInSubtree(Node candidate, Node root) {
+        for (Node ancestor = candidate.manager; ancestor != null; ancestor = ancestor.manager) {
+            if (ancestor == root) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, Object> describe(Node manager) {
+        // The team is everyone below the manager, so it is folded from the direct reports
+        int teamSize = manager.subtreeSize - 1;
+        double teamSalary = manager.salarySum - manager.salary;
+        Double teamMin = null;
+        Double teamMax = null;
+        for (Node report : manager.reports) {
+            teamMin = teamMin == null ? report.salaryMin : Math.min(teamMin, report.salaryMin);
+            teamMax = teamMax == null ? report.salaryMax : Math.max(teamMax, report.salaryMax);
+        }
+        Map<String, Integer> teamRoles = new LinkedHashMap<>();
+        manager.roleCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(entry -> {
+                    int count = Objects.equals(entry.getKey(), manager.role) ? entry.getValue() - 1 : entry.getValue();
+                    if (count > 0) {
+                        teamRoles.put(entry.getKey(), count);
+                    }
+                });
+
+        Map<String, Object> span = new LinkedHashMap<>();
+        span.put("employeeId", manager.id);
+        span.put("name", manager.name + " " + manager.surname);
+        span.put("role", manager.role);
+        span.put("directReports", manager.reports.size());
+        span.put("totalHeadcount", teamSize);
+        span.put("totalSalary", teamSalary);
+        span.put("averageSalary", teamSize == 0 ? 0.0 : teamSalary / teamSize);
+        span.put("minSalary", teamMin);
+        span.put("maxSalary", teamMax);
+        span.put("roleCounts", teamRoles);
+        return span;
+    }
+
+    private String normalizeRole(String role) {
+        return role == null || role.isBlank() ? UNASSIGNED_ROLE : role.trim();
+    }
+}
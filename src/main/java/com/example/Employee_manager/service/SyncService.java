@@ -0,0 +1,118 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.entity.SyncTombstone;
+import com.example.Employee_manager.event.EntityChangeEvent;
+import com.example.Employee_manager.repository.DepartmentRepository;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import com.example.Employee_manager.repository.SyncTombstoneRepository;
+import com.example.Employee_manager.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Delta sync for offline clients: everything that changed after a token, as upserts and tombstones
+@Service
+public class SyncService {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Autowired
+    private SyncVersionService syncVersionService;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private DepartmentService departmentService;
+
+    @Autowired
+    private UserService userService;
+
+    // Runs inside the deleting transaction, so the tombstone commits (or rolls back) with the delete
+    @EventListener
+    public void recordTombstone(EntityChangeEvent change) {
+        if (change.getAction() == EntityChangeEvent.Action.DELETED && change.isBulk()) {
+            // Deleted by one statement, so the tombstones share a version and go in as one batch
+            long version = syncVersionService.next();
+            List<SyncTombstone> tombstones = new ArrayList<>(change.getEntityIds().size());
+            for (Long entityId : change.getEntityIds()) {
+                tombstones.add(new SyncTombstone(change.getEntityType(), entityId, version));
+            }
+            syncTombstoneRepository.saveAll(tombstones);
+        } else if (change.getAction() == EntityChangeEvent.Action.DELETED) {
+            syncTombstoneRepository.save(
+                    new SyncTombstone(change.getEntityType(), change.getEntityId(), syncVersionService.next()));
+        }
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Map<String, Object> getChangesSince(String token, boolean includeUsers) {
+        // Take the watermark before the first read so every version up to it is visible in the snapshot
+        long until = syncVersionService.getWatermark();
+        long since = parseToken(token);
+
+        // A token from another database (or a reset one) cannot be trusted: start over
+        boolean reset = since > syncVersionService.getCurrent();
+        if (reset) {
+            since = 0;
+        }
+
+        List<Map<String, Object>> deleted = new ArrayList<>();
+        if (since > 0) {
+            for (SyncTombstone tombstone : syncTombstoneRepository.findBetween(since, until)) {
+                if (includeUsers || tombstone.getEntityType() != EntityChangeEvent.EntityType.USER) {
+                    Map<String, Object> entry = new HashMap<>();
+                    entry.put("entityType", tombstone.getEntityType());
+                    entry.put("entityId", tombstone.getEntityId());
+                    deleted.add(entry);
+                }
+            }
+        }
+
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("token", String.valueOf(until));
+        changes.put("reset", reset || since == 0);
+        changes.put("employees", employeeService.convertToDTOs(employeeRepository.findChangedBetween(since, until)));
+        changes.put("departments", departmentService.convertToDTOs(departmentRepository.findChangedBetween(since, until)));
+        if (includeUsers) {
+            changes.put("users", userRepository.findChangedBetween(since, until).stream()
+                    .map(userService::convertToUserDTO)
+                    .collect(Collectors.toList()));
+        }
+        changes.put("deleted", deleted);
+        return changes;
+    }
+
+    private long parseToken(String token) {
+        if (token == null || token.isBlank()) {
+            return 0;
+        }
+        try {
+            long since = Long.parseLong(token.trim());
+            if (since < 0) {
+                throw new NumberFormatException();
+            }
+            return since;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid sync token: " + token);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.repository.DepartmentRepository;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import com.example.Employee_manager.repository.SyncTombstoneRepository;
+import com.example.Employee_manager.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+// Hands out the monotonically increasing versions stamped on employees, departments,
+// users and tombstones. Versions are allocated before commit, so a transaction can
+// commit a lower version after a higher one; sync readers therefore only trust versions
+// up to the watermark below the oldest still-open transaction.
+// The counter and the open transactions live in this JVM, so only one instance may run against a
+// database: a second one would hand out overlapping versions, and neither watermark would see the
+// other's open transactions. On PostgreSQL a session advisory lock, held for the life of the
+// application, makes a second instance fail at startup.
+@Service
+public class SyncVersionService {
+
+    private static final Logger log = LoggerFactory.getLogger(SyncVersionService.class);
+
+    private static final String INSTANCE_LOCK_NAME = "employee-manager:sync-versions";
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    // Holds the instance lock on PostgreSQL
+    private Connection instanceLockConnection;
+
+    private long current;
+
+    // Versions handed to transactions that have not finished yet
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+
+    @PostConstruct
+    void seed() {
+        claimDatabase();
+
+        long max = Math.max(
+                Math.max(employeeRepository.findMaxRowVersion(), departmentRepository.findMaxRowVersion()),
+                Math.max(userRepository.findMaxRowVersion(), syncTombstoneRepository.findMaxRowVersion()));
+        synchronized (this) {
+            current = max;
+        }
+
+        // Rows from before row versions existed all sync once, at a single version
+        long legacyVersion = max + 1;
+        int backfilled = employeeRepository.backfillRowVersion(legacyVersion)
+                + departmentRepository.backfillRowVersion(legacyVersion)
+                + userRepository.backfillRowVersion(legacyVersion);
+        if (backfilled > 0) {
+            synchronized (this) {
+                current = Math.max(current, legacyVersion);
+            }
+            log.info("Assigned sync version {} to {} existing row(s)", legacyVersion, backfilled);
+        }
+    }
+
+    // Allocate the next version; it counts as in flight until the surrounding transaction completes
+    @SuppressWarnings("unchecked")
+    public synchronized long next() {
+        long version = ++current;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return version;
+        }
+
+        inFlight.add(version);
+        List<Long> allocated = (List<Long>) TransactionSynchronizationManager.getResource(this);
+        if (allocated == null) {
+            List<Long> versions = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, versions);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SyncVersionService.this);
+                    release(versions);
+                }
+            });
+            allocated = versions;
+        }
+        allocated.add(version);
+        return version;
+    }
+
+    // Highest version at or below which every row change is committed (or rolled back)
+    public synchronized long getWatermark() {
+        return inFlight.isEmpty() ? current : inFlight.first() - 1;
+    }
+
+    public synchronized long getCurrent() {
+        return current;
+    }
+
+    private synchronized void release(List<Long> versions) {
+        inFlight.removeAll(versions);
+    }
+
+    private void claimDatabase() {
+        try {
+            Connection connection = dataSource.getConnection();
+            if (!"PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())) {
+                connection.close();
+                return;
+            }
+            if (!advisoryLock(connection, "pg_try_advisory_lock")) {
+                connection.close();
+                throw new IllegalStateException(
+                        "Another instance is already running against this database; only one may run at a time");
+            }
+            instanceLockConnection = connection;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not claim the database for sync versions", e);
+        }
+    }
+
+    @PreDestroy
+    void releaseDatabase() {
+        if (instanceLockConnection == null) {
+            return;
+        }
+        // A pooled connection outlives close(), and the lock with it, so unlock explicitly
+        try (Connection connection = instanceLockConnection) {
+            advisoryLock(connection, "pg_advisory_unlock");
+        } catch (SQLException e) {
+            log.warn("Could not release the sync version instance lock", e);
+        }
+        instanceLockConnection = null;
+    }
+
+    private boolean advisoryLock(Connection connection, String function) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(hashtext(?))")) {
+            statement.setString(1, INSTANCE_LOCK_NAME);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.dto.UploadJobDTO;
+import com.example.Employee_manager.entity.UploadJob;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import com.example.Employee_manager.repository.UploadJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Processes uploaded profile pictures off the request thread.
+// Jobs are persisted before they are queued, so anything still pending is picked up again after a restart,
+// and a periodic sweep resubmits jobs that found the queue full while being resumed.
+@Service
+public class UploadQueueService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadQueueService.class);
+
+    @Autowired
+    private UploadJobRepository uploadJobRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private FileUploadService fileUploadService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.upload.queue.workers:0}")
+    private int configuredWorkers;
+
+    @Value("${app.upload.queue.capacity:100}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    // Ids of jobs queued or running in this process, so no job is ever queued twice
+    private final Set<Long> queuedJobIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalProcessingNanos = new AtomicLong();
+    private final AtomicLong maxProcessingNanos = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        // Image decoding is CPU bound, so there is no point running more workers than cores
+        int workers = configuredWorkers > 0 ? configuredWorkers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "upload-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        // Unfinished jobs stay PENDING/PROCESSING in the database and are resumed on the next start
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<UploadJob> unfinished = uploadJobRepository.findByStatusInOrderByIdAsc(
+                List.of(UploadJob.Status.PENDING, UploadJob.Status.PROCESSING));
+        int left = 0;
+        for (UploadJob job : unfinished) {
+            if (left > 0 || !submitJob(job.getId())) {
+                // Leave the rest pending; the next sweep tries them again
+                left++;
+            }
+        }
+        if (left > 0) {
+            log.warn("Upload queue full while resuming jobs, {} job(s) left pending", left);
+        }
+    }
+
+    // Unfinished jobs that are not queued here were left behind by a full queue, or by a previous run
+    @Scheduled(fixedDelayString = "${app.upload.queue.resume-interval-ms:60000}",
+               initialDelayString = "${app.upload.queue.resume-interval-ms:60000}")
+    public void resubmitLeftoverJobs() {
+        resumeUnfinishedJobs();
+    }
+
+    // Queue a job unless it is queued already; false if the queue is full
+    private boolean submitJob(Long jobId) {
+        if (!queuedJobIds.add(jobId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(jobId);
+                } finally {
+                    queuedJobIds.remove(jobId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            queuedJobIds.remove(jobId);
+            return false;
+        }
+    }
+
+    // Accept a multipart upload and queue it for processing
+    public UploadJobDTO submit(Long employeeId, MultipartFile file) throws IOException {
+        requireEmployee(employeeId);
+        FileUploadService.StagedUpload staged = fileUploadService.stageUpload(file);
+        return enqueue(employeeId, staged, file.getOriginalFilename());
+    }
+
+    // Accept a raw image body, read once straight from the request, and queue it for processing
+    public UploadJobDTO submitStream(Long employeeId, InputStream body, long contentLength, String originalFilename) throws IOException {
+        requireEmployee(employeeId);
+        FileUploadService.StagedUpload staged = fileUploadService.stageStream(body, contentLength);
+        return enqueue(employeeId, staged, originalFilename);
+    }
+
+    private void requireEmployee(Long employeeId) {
+        if (!employeeRepository.existsById(employeeId)) {
+            throw new RuntimeException("Employee not found with id: " + employeeId);
+        }
+    }
+
+    private UploadJobDTO enqueue(Long employeeId, FileUploadService.StagedUpload staged, String originalFilename) throws IOException {
+        UploadJob job = uploadJobRepository.save(
+                new UploadJob(employeeId, staged.path().toString(), originalFilename, staged.hash()));
+
+        if (!submitJob(job.getId())) {
+            rejectedCount.incrementAndGet();
+            fileUploadService.discardStagedUpload(staged.path());
+            uploadJobRepository.delete(job);
+            throw new IllegalStateException("Upload queue is full, please try again later");
+        }
+
+        submittedCount.incrementAndGet();
+        return convertToDTO(job);
+    }
+
+    // Get the status of an upload job
+    public UploadJobDTO getJob(Long jobId) {
+        UploadJob job = uploadJobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Upload job not found with id: " + jobId));
+        return convertToDTO(job);
+    }
+
+    // Get queue depth and processing time metrics
+    public Map<String, Object> getMetrics() {
+        long completed = completedCount.get();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("activeWorkers", executor.getActiveCount());
+        metrics.put("maxWorkers", executor.getMaximumPoolSize());
+        metrics.put("submitted", submittedCount.get());
+        metrics.put("completed", completed);
+        metrics.put("failed", failedCount.get());
+        metrics.put("rejected", rejectedCount.get());
+        metrics.put("avgProcessingMs", completed == 0 ? 0.0 : totalProcessingNanos.get() / 1_000_000.0 / completed);
+        metrics.put("maxProcessingMs", maxProcessingNanos.get() / 1_000_000.0);
+        return metrics;
+    }
+
+    private void process(Long jobId) {
+        UploadJob job = uploadJobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() == UploadJob.Status.COMPLETED || job.getStatus() == UploadJob.Status.FAILED) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        job.setStatus(UploadJob.Status.PROCESSING);
+        job.setStartedAt(LocalDateTime.now());
+        uploadJobRepository.save(job);
+
+        Path stagedFile = Paths.get(job.getStagedPath());
+        try {
+            // A job resumed after its upload was stored finds the staged file gone and reuses the stored picture
+            if (job.getStoredFilename() == null) {
+                job.setStoredFilename(fileUploadService.storeStagedUpload(stagedFile, job.getContentHash()));
+                uploadJobRepository.save(job);
+            }
+
+            // The new picture and the job's completion commit together, so the job's blob reference
+            // is handed to the employee exactly once even if the worker stops halfway
+            String previousFilename = new TransactionTemplate(transactionManager).execute(status -> {
+                String previous = employeeService.applyProfilePicture(job.getEmployeeId(), job.getStoredFilename());
+                job.setStatus(UploadJob.Status.COMPLETED);
+                job.setResultFilename(job.getStoredFilename());
+                job.setCompletedAt(LocalDateTime.now());
+                uploadJobRepository.save(job);
+                return previous;
+            });
+            completedCount.incrementAndGet();
+            recordProcessingTime(System.nanoTime() - start);
+
+            // Only release the old picture once the new one is committed; re-uploading
+            // the same image still holds two references at this point, so always release
+            if (previousFilename != null) {
+                try {
+                    fileUploadService.deleteProfilePicture(previousFilename);
+                } catch (IOException e) {
+                    log.warn("Could not release previous picture {} of upload job {}", previousFilename, jobId, e);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Profile picture upload job {} failed: {}", jobId, e.getMessage());
+            job.setStatus(UploadJob.Status.FAILED);
+            job.setResultFilename(null);
+            job.setErrorMessage(truncate(e.getMessage()));
+            job.setCompletedAt(LocalDateTime.now());
+            uploadJobRepository.save(job);
+            failedCount.incrementAndGet();
+
+            // Released only once the job is marked failed, so a restart never releases the reference twice
+            try {
+                fileUploadService.discardStagedUpload(stagedFile);
+                fileUploadService.deleteProfilePicture(job.getStoredFilename());
+            } catch (IOException cleanupError) {
+                log.warn("Could not clean up files for upload job {}", jobId, cleanupError);
+            }
+        }
+    }
+
+    private void recordProcessingTime(long nanos) {
+        totalProcessingNanos.addAndGet(nanos);
+        maxProcessingNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return "Processing failed";
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    private UploadJobDTO convertToDTO(UploadJob job) {
+        UploadJobDTO dto = new UploadJobDTO();
+        dto.setId(job.getId());
+        dto.setEmployeeId(job.getEmployeeId());
+        dto.setStatus(job.getStatus().name());
+        dto.setResultFilename(job.getResultFilename());
+        dto.setErrorMessage(job.getErrorMessage());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setCompletedAt(job.getCompletedAt());
+        return dto;
+    }
+}
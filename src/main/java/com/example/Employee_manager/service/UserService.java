@@ -1,17 +1,33 @@
 package com.example.Employee_manager.service;
 
+import com.example.Employee_manager.config.CacheConfig;
 import com.example.Employee_manager.dto.UserDTO;
 import com.example.Employee_manager.entity.Employee;
 import com.example.Employee_manager.entity.User;
+import com.example.Employee_manager.event.EntityChangeEvent;
 import com.example.Employee_manager.repository.EmployeeRepository;
 import com.example.Employee_manager.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -26,6 +42,12 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -49,7 +71,9 @@ public class UserService {
         user.setRole(role);
         user.setEnabled(true);
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        publishChange(EntityChangeEvent.Action.CREATED, savedUser);
+        return savedUser;
     }
 
     public User updateUser(Long id, String username, String password, String role, boolean enabled) {
@@ -68,7 +92,9 @@ public class UserService {
         user.setRole(role);
         user.setEnabled(enabled);
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        publishChange(EntityChangeEvent.Action.UPDATED, savedUser);
+        return savedUser;
     }
 
     public void deleteUser(Long id) {
@@ -86,6 +112,7 @@ public class UserService {
         }
 
         userRepository.delete(user);
+        eventPublisher.publishEvent(EntityChangeEvent.deleted(EntityChangeEvent.EntityType.USER, id));
     }
 
     public List<User> getUsersByRole(String role) {
@@ -113,7 +140,15 @@ public class UserService {
         }
         
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        publishChange(EntityChangeEvent.Action.CREATED, savedUser);
+        return savedUser;
+    }
+
+    // Users are published as UserDTOs so password hashes never reach the change feed
+    private void publishChange(EntityChangeEvent.Action action, User user) {
+        eventPublisher.publishEvent(new EntityChangeEvent(
+                EntityChangeEvent.EntityType.USER, action, user.getId(), convertToUserDTO(user)));
     }
 
     // Check if employee already has a user account
@@ -161,17 +196,172 @@ public class UserService {
     }
 
     // Get all users with their employee information
+    @Transactional(readOnly = true)
     public List<UserDTO> getAllUsersWithEmployeeInfo() {
-        return userRepository.findAll().stream()
-                .map(this::convertToUserDTO)
-                .toList();
+        try (Stream<Object[]> rows = userRepository.streamUsersWithEmployees(null)) {
+            return rows.map(UserService::toUserDTO).toList();
+        }
     }
 
     // Get users by role with employee information
+    @Transactional(readOnly = true)
     public List<UserDTO> getUsersByRoleWithEmployeeInfo(String role) {
-        return userRepository.findAll().stream()
-                .filter(user -> role.equals(user.getRole()))
-                .map(this::convertToUserDTO)
-                .toList();
+        try (Stream<Object[]> rows = userRepository.streamUsersWithEmployees(role)) {
+            return rows.map(UserService::toUserDTO).toList();
+        }
+    }
+
+    // Write users with their employee information as a JSON array while the rows arrive from
+    // one joined query, so memory stays flat however many users there are
+    @Transactional(readOnly = true)
+    public void writeUsersWithEmployeeInfo(String role, OutputStream out) throws IOException {
+        try (Stream<Object[]> rows = userRepository.streamUsersWithEmployees(role);
+             JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartArray();
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                json.writeObject(toUserDTO(iterator.next()));
+            }
+            json.writeEndArray();
+        }
+    }
+
+    // Same fields as convertToUserDTO, from a row of UserRepository.streamUsersWithEmployees
+    static UserDTO toUserDTO(Object[] row) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId((Long) row[0]);
+        userDTO.setUsername((String) row[1]);
+        userDTO.setRole((String) row[2]);
+        userDTO.setEnabled(Boolean.TRUE.equals(row[3]));
+
+        if (row[4] != null) {
+            userDTO.setName((String) row[5]);
+            userDTO.setSurname((String) row[6]);
+            userDTO.setEmployeeNumber((String) row[7]);
+            userDTO.setEmail((String) row[8]);
+            userDTO.setHasEmployeeRecord(true);
+            if (row[9] != null) {
+                userDTO.setDepartmentId((Long) row[9]);
+                userDTO.setDepartmentName((String) row[10]);
+            }
+            if (row[11] != null) {
+                userDTO.setManagerId((Long) row[11]);
+                userDTO.setManagerName(row[12] + " " + row[13]);
+            }
+        } else {
+            // User doesn't have employee record
+            userDTO.setHasEmployeeRecord(false);
+            userDTO.setName(userDTO.getUsername().split("@")[0]);
+            userDTO.setEmail(userDTO.getUsername());
+        }
+        return userDTO;
+    }
+
+    // A built profile, its ETag, and the rows it was built from, so that a change evicts
+    // exactly the profiles that show it
+    public record CachedProfile(Map<String, Object> profile, String etag,
+                                Long userId, Long employeeId, Long managerId, Long departmentId) {}
+
+    // Profile of the logged-in user with this username, or null when the account no longer exists.
+    // Cached per principal; CacheEvictionService drops an entry when anything it shows changes.
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.USER_PROFILES, key = "#username", unless = "#result == null")
+    public CachedProfile getProfile(String username) {
+        Optional<User> user = userRepository.findByUsername(username);
+        if (user.isEmpty()) {
+            return null;
+        }
+        Employee employee = employeeRepository.findByEmail(username).orElse(null);
+        // Shared by every request served from the cache, so it must not be modified
+        Map<String, Object> profile = Collections.unmodifiableMap(buildProfile(user.get(), employee));
+
+        Long employeeId = null;
+        Long managerId = null;
+        Long departmentId = null;
+        if (employee != null) {
+            employeeId = employee.getId();
+            managerId = employee.getManager() != null ? employee.getManager().getId() : null;
+            departmentId = employee.getDepartment() != null ? employee.getDepartment().getId() : null;
+        }
+        return new CachedProfile(profile, profileEtag(profile), user.get().getId(), employeeId, managerId, departmentId);
+    }
+
+    // Strong ETag from the content, so a profile rebuilt after an unrelated change still matches
+    private static String profileEtag(Map<String, Object> profile) {
+        byte[] content = new TreeMap<>(profile).toString().getBytes(StandardCharsets.UTF_8);
+        return "\"profile-" + DigestUtils.md5DigestAsHex(content) + "\"";
+    }
+
+    // Profile shown for a logged-in user: their employee record when they have one, otherwise the bare account
+    public Map<String, Object> buildProfile(User user, Employee employee) {
+        Map<String, Object> profileData = new HashMap<>();
+    
+        if (employee != null) {
+            // User has employee record
+            profileData.put("id", employee.getId());
+            profileData.put("name", employee.getName());
+            profileData.put("surname", employee.getSurname());
+            profileData.put("email", employee.getEmail());
+            profileData.put("role", employee.getRole());
+            profileData.put("employeeNumber", employee.getEmployeeNumber());
+            profileData.put("gravatarUrl", employee.getGravatarUrl());
+        
+            // Department information
+            if (employee.getDepartment() != null) {
+                profileData.put("departmentName", employee.getDepartment().getName());
+            } else {
+                profileData.put("departmentName", null);
+            }
+        
+            // Manager information
+            if (employee.getManager() != null) {
+                profileData.put("managerName", employee.getManager().getName() + " " + employee.getManager().getSurname());
+            } else {
+                profileData.put("managerName", null);
+            }
+        } else {
+            // User without employee record
+            profileData.put("id", user.getId());
+            profileData.put("name", user.getUsername().split("@")[0]);
+            profileData.put("surname", "User");
+            profileData.put("email", user.getUsername());
+            profileData.put("role", user.getRole());
+            profileData.put("employeeNumber", "USR-" + user.getId());
+            profileData.put("departmentName", null);
+            profileData.put("managerName", null);
+        
+            // Generate Gravatar URL for user
+            profileData.put("gravatarUrl", generateGravatarUrl(user.getUsername()));
+        }
+
+        return profileData;
+    }
+
+    private String generateGravatarUrl(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return "https://www.gravatar.com/avatar/placeholder?s=200&d=identicon";
+        }
+        
+        try {
+            String emailLower = email.trim().toLowerCase();
+            byte[] emailBytes = emailLower.getBytes();
+
+            java.security.MessageDigest md = java.security.MessageDigest.getInstance("MD5");
+            byte[] hashBytes = md.digest(emailBytes);
+
+            // Convert byte array to hex string
+            StringBuilder hexString = new StringBuilder();
+            for (byte b : hashBytes) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) {
+                    hexString.append('0');
+                }
+                hexString.append(hex);
+            }
+
+            return "https://www.gravatar.com/avatar/" + hexString.toString() + "?s=200&d=identicon";
+        } catch (java.security.NoSuchAlgorithmException e) {
+            return "https://www.gravatar.com/avatar/placeholder?s=200&d=identicon";
+        }
     }
 }
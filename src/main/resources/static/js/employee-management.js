@@ -500,8 +500,9 @@ async function uploadProfilePictureFile(id, file) {
         });
         
         if (response.ok) {
-            loadData();
-            showNotification('Profile picture uploaded successfully!', 'success');
+            const job = await response.json();
+            showNotification('Profile picture uploaded, processing...', 'info');
+            await waitForUploadJob(job.id);
         } else {
             showNotification('Failed to upload profile picture', 'error');
         }
@@ -511,6 +512,28 @@ async function uploadProfilePictureFile(id, file) {
     }
 }
 
+// Poll a queued upload until the background worker has finished with it
+async function waitForUploadJob(jobId) {
+    for (let attempt = 0; attempt < 30; attempt++) {
+        await new Promise(resolve => setTimeout(resolve, 1000));
+        const response = await fetch(`/api/uploads/jobs/${jobId}`);
+        if (!response.ok) {
+            break;
+        }
+        const job = await response.json();
+        if (job.status === 'COMPLETED') {
+            loadData();
+            showNotification('Profile picture uploaded successfully!', 'success');
+            return;
+        }
+        if (job.status === 'FAILED') {
+            showNotification(job.errorMessage || 'Failed to process profile picture', 'error');
+            return;
+        }
+    }
+    loadData();
+}
+
 // File upload handlers
 function handleFileUpload(event) {
     const file = event.target.files[0];
@@ -0,0 +1,139 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.event.EntityChangeEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeFeedServiceTest {
+
+    // Lets every stalled write return
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final Deque<TestEmitter> nextEmitters = new ArrayDeque<>();
+
+    private ChangeFeedService changeFeedService;
+
+    @BeforeEach
+    void setUp() {
+        changeFeedService = new ChangeFeedService() {
+            @Override
+            FeedEmitter createEmitter(long timeoutMs) {
+                return nextEmitters.poll();
+            }
+        };
+        ReflectionTestUtils.setField(changeFeedService, "subscriberBuffer", 16);
+        ReflectionTestUtils.setField(changeFeedService, "replayBuffer", 16);
+        ReflectionTestUtils.setField(changeFeedService, "emitterTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(changeFeedService, "sendTimeoutMs", 30000L);
+        changeFeedService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        changeFeedService.stop();
+    }
+
+    @Test
+    void stalledSubscribersDoNotDelayDeliveryToOthers() throws InterruptedException {
+        List<TestEmitter> stalled = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            stalled.add(subscribe(true));
+        }
+        TestEmitter healthy = subscribe(false);
+
+        changeFeedService.onEntityChange(EntityChangeEvent.deleted(EntityChangeEvent.EntityType.EMPLOYEE, 1L));
+
+        // Every stalled client is stuck in its own write, and the healthy one still gets the event
+        for (TestEmitter emitter : stalled) {
+            assertTrue(emitter.writeStarted.await(2, TimeUnit.SECONDS));
+        }
+        assertTrue(healthy.delivered.await(2, TimeUnit.SECONDS));
+        assertEquals(1L, stalled.get(0).delivered.getCount());
+    }
+
+    @Test
+    void evictingAStalledSubscriberDoesNotWaitForItsWrite() throws InterruptedException {
+        ReflectionTestUtils.setField(changeFeedService, "sendTimeoutMs", 50L);
+        TestEmitter stalled = subscribe(true);
+
+        changeFeedService.onEntityChange(EntityChangeEvent.deleted(EntityChangeEvent.EntityType.EMPLOYEE, 1L));
+        assertTrue(stalled.writeStarted.await(2, TimeUnit.SECONDS));
+        Thread.sleep(100);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1), changeFeedService::sendHeartbeats);
+        assertEquals(0, changeFeedService.getMetrics().get("subscribers"));
+        assertEquals(1L, changeFeedService.getMetrics().get("evicted"));
+
+        // The stuck write still holds the emitter; its writer completes it once the write returns
+        assertFalse(stalled.completed.await(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(stalled.completed.await(2, TimeUnit.SECONDS));
+    }
+
+    private TestEmitter subscribe(boolean stalled) {
+        TestEmitter emitter = new TestEmitter(stalled);
+        nextEmitters.add(emitter);
+        changeFeedService.subscribe(null, true);
+        return emitter;
+    }
+
+    // Records "change" events; a stalled one blocks in them like a client that stopped reading
+    private final class TestEmitter extends ChangeFeedService.FeedEmitter {
+
+        final boolean stalled;
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        TestEmitter(boolean stalled) {
+            super(60000L);
+            this.stalled = stalled;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            String text = builder.build().stream()
+                    .map(data -> String.valueOf(data.getData()))
+                    .collect(Collectors.joining());
+            if (!text.contains("event:change")) {
+                return;
+            }
+            writeLock.lock();
+            try {
+                if (stalled) {
+                    writeStarted.countDown();
+                    release.await();
+                }
+                delivered.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.entity.Employee;
+import com.example.Employee_manager.event.EntityChangeEvent;
+import com.example.Employee_manager.repository.DepartmentRepository;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class EmployeeImportServiceTest {
+
+    private static final String HEADER = "name,surname,birthDate,employeeNumber,salary,role,managerEmployeeNumber\n";
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Mock
+    private DepartmentRepository departmentRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private EmployeeImportService employeeImportService;
+
+    // Employees in the order they were persisted
+    private final List<Employee> persisted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(employeeImportService, "validator",
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(employeeImportService, "maxRows", 100);
+        ReflectionTestUtils.setField(employeeImportService, "batchSize", 2);
+
+        // 1 is the CEO already stored; the CSV reader tests use none of these
+        lenient().when(employeeRepository.findImportKeys()).thenReturn(
+                List.<Object[]>of(new Object[]{1L, "E1", "ceo@company.com", "CEO"}));
+        lenient().when(departmentRepository.findAllWithManagers()).thenReturn(List.of());
+        lenient().doAnswer(invocation -> {
+            Employee employee = invocation.getArgument(0);
+            employee.setId(100 + persisted.size());
+            persisted.add(employee);
+            return null;
+        }).when(entityManager).persist(any(Employee.class));
+        lenient().when(entityManager.getReference(eq(Employee.class), anyLong())).thenAnswer(invocation -> {
+            Employee reference = new Employee();
+            reference.setId(invocation.getArgument(1, Long.class));
+            return reference;
+        });
+    }
+
+    @Test
+    void csvReaderHandlesQuotesSeparatorsAndEmbeddedNewlines() throws IOException {
+        EmployeeImportService.CsvReader csv = new EmployeeImportService.CsvReader(new StringReader(
+                "a,\"b, c\",\"say \"\"hi\"\"\"\r\n\"first\nsecond\",x\nlast,\n"));
+
+        assertEquals(List.of("a", "b, c", "say \"hi\""), csv.readRecord());
+        assertEquals(1, csv.getRecordLine());
+        assertEquals(List.of("first\nsecond", "x"), csv.readRecord());
+        assertEquals(2, csv.getRecordLine());
+        // The line break inside the quotes still counts towards the line numbers of later records
+        assertEquals(List.of("last", ""), csv.readRecord());
+        assertEquals(4, csv.getRecordLine());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    void csvReaderRejectsAnUnterminatedQuote() throws IOException {
+        EmployeeImportService.CsvReader csv = new EmployeeImportService.CsvReader(new StringReader(
+                "name\n\"never closed\nmore"));
+        csv.readRecord();
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, csv::readRecord);
+        assertEquals("Unterminated quoted field starting on line 2", error.getMessage());
+    }
+
+    @Test
+    void formulaLikeCellsAreStoredAsPlainText() throws IOException {
+        // The whole formula, commas included, is one cell; exports escape it again on the way out
+        Map<String, Object> result = importCsv(HEADER
+                + "\"=HYPERLINK(\"\"http://example.com\"\",\"\"x\"\")\",@SUM(A1),1990-01-01,E2,100,=1+1,\n");
+
+        assertEquals(1, result.get("imported"));
+        Employee employee = persisted.get(0);
+        assertEquals("=HYPERLINK(\"http://example.com\",\"x\")", employee.getName());
+        assertEquals("@SUM(A1)", employee.getSurname());
+        assertEquals("=1+1", employee.getRole());
+    }
+
+    @Test
+    void managersAreInsertedBeforeTheirReports() throws IOException {
+        // E4 reports to E3, which is listed after it and reports to the stored CEO
+        Map<String, Object> result = importCsv(HEADER
+                + "Report,One,1990-01-01,E4,100,Developer,E3\n"
+                + "Lead,Two,1985-01-01,E3,200,Manager,E1\n"
+                + "Other,Three,1991-01-01,E5,100,Developer,E4\n");
+
+        assertEquals(3, result.get("imported"));
+        assertEquals(List.of("E3", "E4", "E5"), persisted.stream().map(Employee::getEmployeeNumber).toList());
+        assertEquals(1L, persisted.get(0).getManager().getId());
+        assertEquals(persisted.get(0).getId(), persisted.get(1).getManager().getId());
+        assertEquals(persisted.get(1).getId(), persisted.get(2).getManager().getId());
+
+        // One bulk event lists the new ids in insert order
+        ArgumentCaptor<EntityChangeEvent> event = ArgumentCaptor.forClass(EntityChangeEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(List.of(100L, 101L, 102L), event.getValue().getEntityIds());
+    }
+
+    @Test
+    void managerLoopsAndUnknownManagersAreReported() throws IOException {
+        // E2 and E3 manage each other and E4 reports into the loop; E5 names itself, E6 an unknown manager
+        Map<String, Object> result = importCsv(HEADER
+                + "A,A,1990-01-01,E2,100,Developer,E3\n"
+                + "B,B,1990-01-01,E3,100,Developer,E2\n"
+                + "C,C,1990-01-01,E4,100,Developer,E2\n"
+                + "D,D,1990-01-01,E5,100,Developer,E5\n"
+                + "F,F,1990-01-01,E6,100,Developer,E9\n"
+                + "G,G,1990-01-01,E7,100,Developer,E1\n");
+
+        assertEquals(1, result.get("imported"));
+        assertEquals("E7", persisted.get(0).getEmployeeNumber());
+        Map<Object, Object> errors = errorsByEmployeeNumber(result);
+        assertEquals("Manager E3 could not be imported", errors.get("E2"));
+        assertEquals("Manager chain loops back to this employee", errors.get("E3"));
+        assertEquals("Manager E2 could not be imported", errors.get("E4"));
+        assertEquals("Employee cannot be their own manager", errors.get("E5"));
+        assertEquals("Manager not found with employee number: E9", errors.get("E6"));
+    }
+
+    @Test
+    void duplicateAndInvalidRowsAreReportedWithTheirLine() throws IOException {
+        Map<String, Object> result = importCsv(HEADER
+                + "A,A,1990-01-01,E1,100,Developer,\n"
+                + "\"Multi\nline\",B,1990-01-01,E2,100,Developer,\n"
+                + "C,C,not-a-date,E3,100,Developer,\n");
+
+        assertEquals(1, result.get("imported"));
+        List<?> errors = (List<?>) result.get("errors");
+        assertEquals(Map.of("line", 2, "employeeNumber", "E1", "error", "Employee number already exists: E1"),
+                errors.get(0));
+        // The quoted line break pushes the next record down a line
+        assertEquals(5, ((Map<?, ?>) errors.get(1)).get("line"));
+        assertEquals("Birth date must be in yyyy-MM-dd format", ((Map<?, ?>) errors.get(1)).get("error"));
+    }
+
+    private Map<String, Object> importCsv(String content) throws IOException {
+        return employeeImportService.importCsv(new StringReader(content));
+    }
+
+    private static Map<Object, Object> errorsByEmployeeNumber(Map<String, Object> result) {
+        Map<Object, Object> errors = new LinkedHashMap<>();
+        for (Object error : (List<?>) result.get("errors")) {
+            Map<?, ?> entry = (Map<?, ?>) error;
+            errors.put(entry.get("employeeNumber"), entry.get("error"));
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.dto.EmployeeDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HierarchyServiceTest {
+
+    @Mock
+    private OrgStructureService orgStructureService;
+
+    @Mock
+    private FileUploadService fileUploadService;
+
+    @Mock
+    private EmployeeService employeeService;
+
+    @InjectMocks
+    private HierarchyService hierarchyService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(hierarchyService, "objectMapper", objectMapper);
+    }
+
+    @Test
+    void buildsTheTreeFromTheSharedStructure() throws IOException {
+        // 1 (CEO) manages 2 (Manager), who manages 3; 4 and 5 manage each other; 6 has no manager
+        OrgStructure structure = OrgStructure.build("v1", List.of(
+                row(1, null, "CEO"), row(2, 1L, "Manager"), row(3, 2L, "Developer"),
+                row(4, 5L, "Developer"), row(5, 4L, "Developer"), row(6, null, "Developer")));
+        when(orgStructureService.getStructure()).thenReturn(structure);
+
+        HierarchyService.HierarchySnapshot snapshot = hierarchyService.getSnapshot();
+
+        JsonNode tree = objectMapper.readTree(snapshot.treeJson());
+        // The loop is cut above 5, which then hangs after the real roots
+        assertEquals(List.of(1L, 6L, 5L), rootIds(tree));
+        JsonNode manager = tree.get(0).get("children").get(0);
+        assertEquals(2L, manager.get("employee").get("id").asLong());
+        assertEquals("Name1 Surname1", manager.get("employee").get("managerName").asText());
+        assertEquals(2, manager.get("children").get(0).get("level").asInt());
+        assertTrue(manager.has("user"));
+
+        Map<String, Object> statistics = snapshot.statistics();
+        assertEquals(6, statistics.get("totalUsers"));
+        assertEquals(4, statistics.get("usersWithManagers"));
+        assertEquals(1, statistics.get("adminCount"));
+        assertEquals(1, statistics.get("managerCount"));
+        assertEquals(3, statistics.get("rootCount"));
+        assertEquals(0, statistics.get("orphanCount"));
+        assertEquals(1, statistics.get("brokenCycleCount"));
+        assertEquals(2, statistics.get("maxDepth"));
+
+        // Everything came from the structure; no second read of the employees
+        verifyNoInteractions(employeeService);
+    }
+
+    @Test
+    void rebuildsOnlyWhenTheStructureVersionChanges() {
+        OrgStructure first = OrgStructure.build("v1", List.<Object[]>of(row(1, null, "CEO")));
+        OrgStructure second = OrgStructure.build("v2", List.of(row(1, null, "CEO"), row(2, 1L, "Developer")));
+        when(orgStructureService.getStructure()).thenReturn(first, first, first, second, second);
+
+        HierarchyService.HierarchySnapshot built = hierarchyService.getSnapshot();
+        assertSame(built, hierarchyService.getSnapshot());
+
+        HierarchyService.HierarchySnapshot rebuilt = hierarchyService.getSnapshot();
+        assertEquals("v2", rebuilt.version());
+        assertEquals(2, rebuilt.statistics().get("totalUsers"));
+    }
+
+    @Test
+    void countsAnUnknownManagerAsAnOrphan() throws IOException {
+        OrgStructure structure = OrgStructure.build("v1", List.of(row(1, null, "CEO"), row(2, 99L, "Developer")));
+        when(orgStructureService.getStructure()).thenReturn(structure);
+
+        HierarchyService.HierarchySnapshot snapshot = hierarchyService.getSnapshot();
+
+        assertEquals(1, snapshot.statistics().get("orphanCount"));
+        assertEquals(0, snapshot.statistics().get("brokenCycleCount"));
+        assertTrue(objectMapper.readTree(snapshot.treeJson()).get(1).get("employee").get("managerName").isNull());
+    }
+
+    @Test
+    void sharedSnapshotsAndTreesCannotBeChanged() {
+        OrgStructure structure = OrgStructure.build("v1", List.of(row(1, null, "CEO"), row(2, 1L, "Developer")));
+        when(orgStructureService.getStructure()).thenReturn(structure);
+        assertThrows(UnsupportedOperationException.class,
+                () -> hierarchyService.getSnapshot().statistics().put("totalUsers", 0));
+
+        List<HierarchyService.HierarchyNode> roots = hierarchyService.buildHierarchyTree(
+                List.of(employee(1, null), employee(2, 1L), employee(3, 2L)));
+        HierarchyService.HierarchyNode root = roots.get(0);
+        assertEquals(2, root.children().get(0).children().get(0).level());
+        assertThrows(UnsupportedOperationException.class, () -> root.children().clear());
+        assertThrows(UnsupportedOperationException.class, () -> roots.add(root));
+    }
+
+    private static Object[] row(long id, Long managerId, String role) {
+        Object[] row = new Object[12];
+        row[OrgStructure.ID] = id;
+        row[OrgStructure.NAME] = "Name" + id;
+        row[OrgStructure.SURNAME] = "Surname" + id;
+        row[OrgStructure.ROLE] = role;
+        row[OrgStructure.EMAIL] = "employee" + id + "@company.com";
+        row[OrgStructure.MANAGER_ID] = managerId;
+        row[OrgStructure.SALARY] = 1000.0 * id;
+        return row;
+    }
+
+    private static EmployeeDTO employee(long id, Long managerId) {
+        EmployeeDTO employee = new EmployeeDTO();
+        employee.setId(id);
+        employee.setManagerId(managerId);
+        return employee;
+    }
+
+    private static List<Long> rootIds(JsonNode roots) {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode root : roots) {
+            ids.add(root.get("employee").get("id").asLong());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.entity.Employee;
+import com.example.Employee_manager.event.EntityChangeEvent;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ManagerAssignmentServiceTest {
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Mock
+    private ReportingLineService reportingLineService;
+
+    @Mock
+    private SyncVersionService syncVersionService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ManagerAssignmentService managerAssignmentService;
+
+    @Captor
+    private ArgumentCaptor<Collection<Long>> excludedIds;
+
+    @Captor
+    private ArgumentCaptor<EntityChangeEvent> published;
+
+    @Test
+    void excludesTheCeoAndEveryoneAboveThemFromTheReassignment() {
+        Employee ceo = employee(5);
+        when(employeeRepository.findCeoCandidates(any(Pageable.class))).thenReturn(List.of(ceo));
+        // The CEO reports to 3, who reports to 1
+        when(reportingLineService.getManagementChain(5L)).thenReturn(List.of(5L, 3L, 1L));
+        when(syncVersionService.next()).thenReturn(42L);
+        when(employeeRepository.assignManagersToCeo(eq(ceo), anyCollection(), eq(42L))).thenReturn(2);
+        when(employeeRepository.assignManagedDepartments(42L)).thenReturn(1);
+        when(employeeRepository.findIdsByRowVersion(42L)).thenReturn(List.of(7L, 8L, 9L));
+
+        Map<String, Object> result = managerAssignmentService.reconcile("manual");
+
+        verify(employeeRepository).assignManagersToCeo(eq(ceo), excludedIds.capture(), eq(42L));
+        assertEquals(Set.of(5L, 3L, 1L), new HashSet<>(excludedIds.getValue()));
+
+        // The chain is read only once no other reporting line can change
+        InOrder order = inOrder(reportingLineService);
+        order.verify(reportingLineService).lock();
+        order.verify(reportingLineService).getManagementChain(5L);
+
+        verify(eventPublisher).publishEvent(published.capture());
+        assertTrue(published.getValue().isBulk());
+        assertEquals(List.of(7L, 8L, 9L), published.getValue().getEntityIds());
+
+        assertEquals("completed", result.get("state"));
+        assertEquals(5L, result.get("ceoId"));
+        assertEquals(2, result.get("managersAssigned"));
+        assertEquals(3, result.get("employeesChanged"));
+    }
+
+    @Test
+    void publishesNothingWhenNoRowChanged() {
+        Employee ceo = employee(5);
+        when(employeeRepository.findCeoCandidates(any(Pageable.class))).thenReturn(List.of(ceo));
+        when(reportingLineService.getManagementChain(5L)).thenReturn(List.of(5L));
+        when(syncVersionService.next()).thenReturn(42L);
+        when(employeeRepository.assignManagersToCeo(eq(ceo), anyCollection(), eq(42L))).thenReturn(0);
+        when(employeeRepository.assignManagedDepartments(42L)).thenReturn(0);
+
+        Map<String, Object> result = managerAssignmentService.reconcile("manual");
+
+        assertEquals("completed", result.get("state"));
+        assertEquals(0, result.get("employeesChanged"));
+        verify(employeeRepository, never()).findIdsByRowVersion(anyLong());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void skipsWithoutWritingWhenThereIsNoCeo() {
+        when(employeeRepository.findCeoCandidates(any(Pageable.class))).thenReturn(List.of());
+
+        Map<String, Object> result = managerAssignmentService.reconcile("manual");
+
+        assertEquals("skipped", result.get("state"));
+        verify(employeeRepository, never()).assignManagersToCeo(any(), anyCollection(), anyLong());
+        verify(employeeRepository, never()).assignManagedDepartments(anyLong());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        assertEquals("skipped", managerAssignmentService.getProgress().get("state"));
+    }
+
+    private static Employee employee(long id) {
+        Employee employee = new Employee();
+        employee.setId(id);
+        return employee;
+    }
+}
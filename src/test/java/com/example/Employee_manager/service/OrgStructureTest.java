@@ -0,0 +1,141 @@
+package com.example.Employee_manager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrgStructureTest {
+
+    // A row as returned by EmployeeRepository.findOrgChartRows()
+    private static Object[] row(long id, Long managerId) {
+        Object[] row = new Object[12];
+        row[OrgStructure.ID] = id;
+        row[OrgStructure.NAME] = "Name" + id;
+        row[OrgStructure.SURNAME] = "Surname" + id;
+        row[OrgStructure.ROLE] = "Employee";
+        row[OrgStructure.MANAGER_ID] = managerId;
+        return row;
+    }
+
+    private static OrgStructure build(Object[]... rows) {
+        return OrgStructure.build("test", List.of(rows));
+    }
+
+    @Test
+    void buildsLevelsAndSubtreesFromManagerLinks() {
+        OrgStructure structure = build(
+                row(1, null), row(2, 1L), row(3, 1L), row(4, 2L), row(5, 4L), row(6, 3L));
+
+        int ceo = structure.indexOf(1);
+        int deepest = structure.indexOf(5);
+        assertEquals(1, structure.rootCount());
+        assertEquals(0, structure.level(ceo));
+        assertEquals(3, structure.level(deepest));
+        assertEquals(6, structure.subtreeSize(ceo));
+        assertTrue(structure.isDescendant(ceo, deepest));
+        assertFalse(structure.isDescendant(deepest, ceo));
+        assertFalse(structure.isDescendant(structure.indexOf(3), deepest));
+        assertEquals(List.of(1L, 2L, 4L, 5L), ids(structure.pathIds(deepest)));
+        assertEquals(0, structure.brokenCycleCount());
+    }
+
+    @Test
+    void cutsAManagerLoopOnceAndKeepsItsMembersInOneTree() {
+        OrgStructure structure = build(
+                row(20, 21L), row(21, 22L), row(22, 20L), row(23, 20L));
+
+        assertEquals(1, structure.brokenCycleCount());
+        assertEquals(1, structure.rootCount());
+        int root = structure.root(0);
+        assertEquals(4, structure.subtreeSize(root));
+        for (long id : new long[]{20, 21, 22, 23}) {
+            int node = structure.indexOf(id);
+            assertTrue(node == root || structure.isDescendant(root, node));
+        }
+
+        List<Long> visited = new ArrayList<>();
+        structure.walk(root, (node, depth) -> visited.add(structure.id(node)));
+        assertEquals(4, visited.size());
+    }
+
+    @Test
+    void treatsSelfManagersAndUnknownManagersAsRootsWithoutCountingCuts() {
+        OrgStructure structure = build(row(30, 30L), row(40, 999L), row(41, 40L));
+
+        assertEquals(0, structure.brokenCycleCount());
+        assertEquals(2, structure.rootCount());
+        assertEquals(OrgStructure.NONE, structure.parent(structure.indexOf(30)));
+        assertEquals(OrgStructure.NONE, structure.parent(structure.indexOf(40)));
+        assertEquals(1, structure.level(structure.indexOf(41)));
+    }
+
+    @Test
+    void breakCyclesLeavesEveryChainEndingAtARoot() {
+        // Two loops, 0 -> 1 -> 2 -> 0 and 4 <-> 5, plus 3 and 6 hanging off them
+        int[] parent = {1, 2, 0, 0, 5, 4, 5};
+
+        assertEquals(2, OrgStructure.breakCycles(parent));
+        for (int start = 0; start < parent.length; start++) {
+            int steps = 0;
+            for (int node = start; node != OrgStructure.NONE; node = parent[node]) {
+                assertTrue(++steps <= parent.length, "loop left behind at node " + start);
+            }
+        }
+    }
+
+    @Test
+    void lowestCommonAncestorAcrossLevelsAndBranches() {
+        OrgStructure structure = build(
+                row(1, null), row(2, 1L), row(3, 1L), row(4, 2L), row(5, 4L), row(6, 3L));
+
+        assertEquals(1L, lcaId(structure, 5, 6));
+        assertEquals(1L, lcaId(structure, 6, 5));
+        assertEquals(2L, lcaId(structure, 5, 2));
+        assertEquals(4L, lcaId(structure, 4, 5));
+        assertEquals(5L, lcaId(structure, 5, 5));
+    }
+
+    @Test
+    void lowestCommonAncestorOverALongChainUsesEveryJumpLevel() {
+        // 1 <- 2 <- ... <- 100, with a branch 200 <- 201 hanging off 50
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(row(1, null));
+        for (long id = 2; id <= 100; id++) {
+            rows.add(row(id, id - 1));
+        }
+        rows.add(row(200, 50L));
+        rows.add(row(201, 200L));
+        OrgStructure structure = OrgStructure.build("test", rows);
+
+        assertEquals(50L, lcaId(structure, 100, 201));
+        assertEquals(37L, lcaId(structure, 201, 37));
+        assertEquals(50L, lcaId(structure, 200, 51));
+        assertEquals(1L, lcaId(structure, 1, 100));
+    }
+
+    @Test
+    void employeesInSeparateTreesHaveNoCommonManager() {
+        OrgStructure structure = build(row(1, null), row(2, 1L), row(10, null), row(11, 10L));
+
+        assertEquals(OrgStructure.NONE, structure.lowestCommonAncestor(structure.indexOf(2), structure.indexOf(11)));
+        assertEquals(OrgStructure.NONE, structure.lowestCommonAncestor(structure.indexOf(1), structure.indexOf(10)));
+    }
+
+    private static long lcaId(OrgStructure structure, long a, long b) {
+        int lca = structure.lowestCommonAncestor(structure.indexOf(a), structure.indexOf(b));
+        return lca == OrgStructure.NONE ? -1 : structure.id(lca);
+    }
+
+    private static List<Long> ids(long[] ids) {
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+}
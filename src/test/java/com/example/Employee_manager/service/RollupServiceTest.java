@@ -0,0 +1,143 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.dto.EmployeeDTO;
+import com.example.Employee_manager.event.EntityChangeEvent;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RollupServiceTest {
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @InjectMocks
+    private RollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(rollupService, "maxResults", 200);
+        // 1 (100) manages 2 (50) and 4 (80); 2 manages 3 (5)
+        when(employeeRepository.findRollupRows()).thenReturn(List.of(
+                rollupRow(1, null, "CEO", 100.0),
+                rollupRow(2, 1L, "Manager", 50.0),
+                rollupRow(3, 2L, "Developer", 5.0),
+                rollupRow(4, 1L, "Manager", 80.0)));
+        // The first read builds; changes are then applied incrementally
+        rollupService.getOrganizationRollup();
+    }
+
+    @Test
+    void movingAnEmployeeUpdatesBothAncestorPaths() {
+        rollupService.onEntityChange(EntityChangeEvent.updated(
+                EntityChangeEvent.EntityType.EMPLOYEE, 3L, employee(3, 4L, "Developer", 5.0)));
+
+        Map<String, Object> oldManager = rollupService.getSpanOfControl(2L);
+        assertEquals(0, oldManager.get("totalHeadcount"));
+        assertEquals(0.0, oldManager.get("totalSalary"));
+        assertNull(oldManager.get("minSalary"));
+        assertNull(oldManager.get("maxSalary"));
+
+        Map<String, Object> newManager = rollupService.getSpanOfControl(4L);
+        assertEquals(1, newManager.get("totalHeadcount"));
+        assertEquals(5.0, newManager.get("minSalary"));
+        assertEquals(5.0, newManager.get("maxSalary"));
+
+        Map<String, Object> ceo = rollupService.getSpanOfControl(1L);
+        assertEquals(3, ceo.get("totalHeadcount"));
+        assertEquals(135.0, ceo.get("totalSalary"));
+        assertEquals(5.0, ceo.get("minSalary"));
+        assertEquals(80.0, ceo.get("maxSalary"));
+        verify(employeeRepository, times(1)).findRollupRows();
+    }
+
+    @Test
+    void deletingTheLowestPaidEmployeeRecomputesTheMinimumUpTheChain() {
+        rollupService.onEntityChange(EntityChangeEvent.deleted(EntityChangeEvent.EntityType.EMPLOYEE, 3L));
+
+        Map<String, Object> manager = rollupService.getSpanOfControl(2L);
+        assertEquals(0, manager.get("totalHeadcount"));
+        assertNull(manager.get("minSalary"));
+
+        Map<String, Object> ceo = rollupService.getSpanOfControl(1L);
+        assertEquals(2, ceo.get("totalHeadcount"));
+        assertEquals(50.0, ceo.get("minSalary"));
+        assertEquals(80.0, ceo.get("maxSalary"));
+        assertEquals(3, rollupService.getOrganizationRollup().get("headcount"));
+        verify(employeeRepository, times(1)).findRollupRows();
+    }
+
+    @Test
+    void loweringTheHighestSalaryRecomputesTheMaximum() {
+        rollupService.onEntityChange(EntityChangeEvent.updated(
+                EntityChangeEvent.EntityType.EMPLOYEE, 4L, employee(4, 1L, "Manager", 20.0)));
+
+        Map<String, Object> ceo = rollupService.getSpanOfControl(1L);
+        assertEquals(5.0, ceo.get("minSalary"));
+        assertEquals(50.0, ceo.get("maxSalary"));
+        assertEquals(75.0, ceo.get("totalSalary"));
+        verify(employeeRepository, times(1)).findRollupRows();
+    }
+
+    @Test
+    void movingAManagerUnderTheirOwnReportFallsBackToARebuild() {
+        rollupService.onEntityChange(EntityChangeEvent.updated(
+                EntityChangeEvent.EntityType.EMPLOYEE, 2L, employee(2, 3L, "Manager", 50.0)));
+
+        rollupService.getOrganizationRollup();
+        verify(employeeRepository, times(2)).findRollupRows();
+    }
+
+    @Test
+    void changesCommittedDuringARebuildAreNotBlockedAndNotLost() {
+        rollupService.scheduleRebuild();
+        when(employeeRepository.findRollupRows()).thenAnswer(invocation -> {
+            // A transaction commits a raise while the rows are read; its listener must not wait for the read
+            CompletableFuture.runAsync(() -> rollupService.onEntityChange(EntityChangeEvent.updated(
+                    EntityChangeEvent.EntityType.EMPLOYEE, 3L, employee(3, 2L, "Developer", 25.0))))
+                    .get(5, TimeUnit.SECONDS);
+            return List.of(
+                    rollupRow(1, null, "CEO", 100.0),
+                    rollupRow(2, 1L, "Manager", 50.0),
+                    rollupRow(3, 2L, "Developer", 5.0),
+                    rollupRow(4, 1L, "Manager", 80.0));
+        });
+
+        assertEquals(255.0, rollupService.getOrganizationRollup().get("totalSalary"));
+        assertEquals(25.0, rollupService.getSpanOfControl(2L).get("totalSalary"));
+        verify(employeeRepository, times(2)).findRollupRows();
+    }
+
+    // A row as returned by EmployeeRepository.findRollupRows()
+    private static Object[] rollupRow(long id, Long managerId, String role, Double salary) {
+        return new Object[]{id, managerId, "Name" + id, "Surname" + id, role, salary};
+    }
+
+    private static EmployeeDTO employee(long id, Long managerId, String role, Double salary) {
+        EmployeeDTO dto = new EmployeeDTO();
+        dto.setId(id);
+        dto.setManagerId(managerId);
+        dto.setName("Name" + id);
+        dto.setSurname("Surname" + id);
+        dto.setRole(role);
+        dto.setSalary(salary);
+        return dto;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.repository.DepartmentRepository;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import com.example.Employee_manager.repository.SyncTombstoneRepository;
+import com.example.Employee_manager.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SyncServiceTest {
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Mock
+    private DepartmentRepository departmentRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Mock
+    private SyncVersionService syncVersionService;
+
+    @Mock
+    private EmployeeService employeeService;
+
+    @Mock
+    private DepartmentService departmentService;
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private SyncService syncService;
+
+    @BeforeEach
+    void setUp() {
+        // Version 10 is allocated but its transaction is still open; a malformed token never gets this far
+        when(syncVersionService.getWatermark()).thenReturn(9L);
+        lenient().when(syncVersionService.getCurrent()).thenReturn(10L);
+    }
+
+    @Test
+    void continuesFromAKnownToken() {
+        Map<String, Object> changes = syncService.getChangesSince("5", false);
+
+        assertEquals(false, changes.get("reset"));
+        assertEquals("9", changes.get("token"));
+        verify(employeeRepository).findChangedBetween(5L, 9L);
+        verify(syncTombstoneRepository).findBetween(5L, 9L);
+    }
+
+    @Test
+    void resetsATokenAheadOfEveryAllocatedVersion() {
+        // Issued by another database, or before the versions were rebuilt
+        Map<String, Object> changes = syncService.getChangesSince("25", false);
+
+        assertEquals(true, changes.get("reset"));
+        assertEquals("9", changes.get("token"));
+        verify(employeeRepository).findChangedBetween(0L, 9L);
+        verify(departmentRepository).findChangedBetween(0L, 9L);
+        verify(syncTombstoneRepository, never()).findBetween(anyLong(), anyLong());
+    }
+
+    @Test
+    void aFirstSyncIsAReset() {
+        Map<String, Object> changes = syncService.getChangesSince(null, true);
+
+        assertEquals(true, changes.get("reset"));
+        verify(userRepository).findChangedBetween(0L, 9L);
+        verify(syncTombstoneRepository, never()).findBetween(anyLong(), anyLong());
+    }
+
+    @Test
+    void rejectsAMalformedToken() {
+        assertThrows(IllegalArgumentException.class, () -> syncService.getChangesSince("-3", false));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.repository.DepartmentRepository;
+import com.example.Employee_manager.repository.EmployeeRepository;
+import com.example.Employee_manager.repository.SyncTombstoneRepository;
+import com.example.Employee_manager.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SyncVersionServiceTest {
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Mock
+    private DepartmentRepository departmentRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SyncTombstoneRepository syncTombstoneRepository;
+
+    @Mock
+    private DataSource dataSource;
+
+    @InjectMocks
+    private SyncVersionService syncVersionService;
+
+    // Each open transaction runs on its own thread, as transaction synchronization is thread-bound
+    private final ExecutorService first = Executors.newSingleThreadExecutor();
+    private final ExecutorService second = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        first.shutdownNow();
+        second.shutdownNow();
+    }
+
+    @Test
+    void seedsFromTheHighestStoredVersion() throws SQLException {
+        database("H2");
+        when(employeeRepository.findMaxRowVersion()).thenReturn(12L);
+        when(departmentRepository.findMaxRowVersion()).thenReturn(30L);
+        when(userRepository.findMaxRowVersion()).thenReturn(7L);
+        when(syncTombstoneRepository.findMaxRowVersion()).thenReturn(25L);
+
+        syncVersionService.seed();
+
+        assertEquals(30L, syncVersionService.getCurrent());
+        assertEquals(30L, syncVersionService.getWatermark());
+        assertEquals(31L, syncVersionService.next());
+    }
+
+    @Test
+    void refusesToStartWhenAnotherInstanceHoldsTheDatabase() throws SQLException {
+        Connection connection = database("PostgreSQL");
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet result = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(result);
+        when(result.next()).thenReturn(true);
+        when(result.getBoolean(1)).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> syncVersionService.seed());
+        verify(connection).close();
+        verify(employeeRepository, never()).backfillRowVersion(anyLong());
+    }
+
+    @Test
+    void watermarkStaysBelowAnOlderOpenTransaction() throws Exception {
+        long older = begin(first);
+        long newer = begin(second);
+        assertEquals(older - 1, syncVersionService.getWatermark());
+
+        // The newer one commits first; its rows must not be handed out yet
+        finish(second, TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(older - 1, syncVersionService.getWatermark());
+
+        finish(first, TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(newer, syncVersionService.getWatermark());
+    }
+
+    @Test
+    void rolledBackVersionsNoLongerHoldTheWatermark() throws Exception {
+        long committed = begin(first);
+        long rolledBack = begin(second);
+        finish(first, TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(rolledBack - 1, syncVersionService.getWatermark());
+
+        finish(second, TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(rolledBack, syncVersionService.getWatermark());
+        assertEquals(committed + 1, rolledBack);
+    }
+
+    @Test
+    void versionsOutsideATransactionAreNotHeldInFlight() {
+        long version = syncVersionService.next();
+        assertEquals(version, syncVersionService.getWatermark());
+    }
+
+    private Connection database(String productName) throws SQLException {
+        Connection connection = mock(Connection.class);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.getDatabaseProductName()).thenReturn(productName);
+        return connection;
+    }
+
+    // Open a transaction on the thread and allocate one version in it
+    private long begin(ExecutorService thread) throws ExecutionException, InterruptedException {
+        return thread.submit(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            return syncVersionService.next();
+        }).get();
+    }
+
+    private void finish(ExecutorService thread, int status) throws ExecutionException, InterruptedException {
+        thread.submit(() -> {
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(status);
+            }
+            TransactionSynchronizationManager.clearSynchronization();
+        }).get();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.Employee_manager.service;
+
+import com.example.Employee_manager.entity.UploadJob;
+import com.example.Employee_manager.repository.UploadJobRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UploadQueueServiceTest {
+
+    @Mock
+    private UploadJobRepository uploadJobRepository;
+
+    @Mock
+    private EmployeeService employeeService;
+
+    @Mock
+    private FileUploadService fileUploadService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private UploadQueueService uploadQueueService;
+
+    @Test
+    void recordsTheStoredPictureBeforeApplyingIt() throws Exception {
+        UploadJob job = job(null);
+        when(uploadJobRepository.findById(1L)).thenReturn(Optional.of(job));
+        when(fileUploadService.storeStagedUpload(Path.of("/staging/upload.png"), "abc")).thenReturn("abc.png");
+        when(employeeService.applyProfilePicture(7L, "abc.png")).thenAnswer(invocation -> {
+            // The worker could stop here; a restart must find the stored picture on the job
+            assertEquals("abc.png", job.getStoredFilename());
+            return "old.png";
+        });
+
+        process(1L);
+
+        assertEquals(UploadJob.Status.COMPLETED, job.getStatus());
+        assertEquals("abc.png", job.getResultFilename());
+        verify(fileUploadService).deleteProfilePicture("old.png");
+    }
+
+    @Test
+    void resumedJobReusesTheStoredPicture() throws Exception {
+        // Interrupted after the staged file was moved into the store
+        UploadJob job = job("abc.png");
+        when(uploadJobRepository.findById(1L)).thenReturn(Optional.of(job));
+
+        process(1L);
+
+        verify(fileUploadService, never()).storeStagedUpload(any(), any());
+        verify(employeeService).applyProfilePicture(7L, "abc.png");
+        assertEquals(UploadJob.Status.COMPLETED, job.getStatus());
+    }
+
+    @Test
+    void failedJobReleasesTheStoredPicture() throws Exception {
+        UploadJob job = job("abc.png");
+        when(uploadJobRepository.findById(1L)).thenReturn(Optional.of(job));
+        when(employeeService.applyProfilePicture(7L, "abc.png"))
+                .thenThrow(new RuntimeException("Employee not found with id: 7"));
+
+        process(1L);
+
+        assertEquals(UploadJob.Status.FAILED, job.getStatus());
+        assertNull(job.getResultFilename());
+        verify(fileUploadService).deleteProfilePicture("abc.png");
+    }
+
+    private void process(Long jobId) {
+        ReflectionTestUtils.invokeMethod(uploadQueueService, "process", jobId);
+    }
+
+    private static UploadJob job(String storedFilename) {
+        UploadJob job = new UploadJob(7L, "/staging/upload.png", "upload.png", "abc");
+        job.setId(1L);
+        job.setStatus(UploadJob.Status.PROCESSING);
+        job.setStoredFilename(storedFilename);
+        return job;
+    }
+}